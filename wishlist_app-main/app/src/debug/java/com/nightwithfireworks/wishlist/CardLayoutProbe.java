@@ -0,0 +1,55 @@
+package com.nightwithfireworks.wishlist;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+// debug builds only: inflates and measures the card before and after flattening, recorded as PerfMetrics sections.
+// every other card gets a name far longer than two lines; the gauges show whether the text stayed within its
+// line limits and left the image its space, so the fixed-size card still resolves in one measure pass
+final class CardLayoutProbe {
+
+    private static final int RUNS = 50;
+    private static final String LONG_NAME = "Noise cancelling wireless headphones with the travel case and the spare"
+            + " ear cushions in midnight blue";
+
+    private CardLayoutProbe() {
+    }
+
+    static void run(ViewGroup parent) {
+        measure(parent, R.layout.item_card_nested, "card.inflate_measure.nested", "card.nested");
+        measure(parent, R.layout.item_card, "card.inflate_measure.flat", "card.flat");
+    }
+
+    private static void measure(ViewGroup parent, int layoutId, String section, String gauges) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        int maxNameLines = 0;
+        int maxPriceLines = 0;
+        int minImageHeight = Integer.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            View card;
+            try (PerfMetrics.Section ignored = PerfMetrics.section(section)) {
+                card = inflater.inflate(layoutId, parent, false);
+                ((TextView) card.findViewById(R.id.tvItemName)).setText(i % 2 == 0 ? "Wish " + i : LONG_NAME);
+                ((TextView) card.findViewById(R.id.tvItemPrice)).setText("฿" + i * 100);
+                ViewGroup.LayoutParams params = card.getLayoutParams();
+                card.measure(View.MeasureSpec.makeMeasureSpec(params.width, View.MeasureSpec.EXACTLY),
+                        View.MeasureSpec.makeMeasureSpec(params.height, View.MeasureSpec.EXACTLY));
+            }
+            TextView name = card.findViewById(R.id.tvItemName);
+            TextView price = card.findViewById(R.id.tvItemPrice);
+            maxNameLines = Math.max(maxNameLines, visibleLines(name));
+            maxPriceLines = Math.max(maxPriceLines, visibleLines(price));
+            minImageHeight = Math.min(minImageHeight, card.findViewById(R.id.imgItem).getMeasuredHeight());
+        }
+        PerfMetrics.setGauge(gauges + ".name_max_lines", maxNameLines);
+        PerfMetrics.setGauge(gauges + ".price_max_lines", maxPriceLines);
+        PerfMetrics.setGauge(gauges + ".image_min_height_px", minImageHeight);
+    }
+
+    // from the measured height, since that is what the card had to make room for
+    private static int visibleLines(TextView text) {
+        return Math.round((float) text.getMeasuredHeight() / text.getLineHeight());
+    }
+}
@@ -0,0 +1,48 @@
+package com.nightwithfireworks.wishlist;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+public class AddCardAdapter extends RecyclerView.Adapter<AddCardAdapter.AddCardViewHolder> {
+
+    private static final long FOOTER_ID = Long.MIN_VALUE;
+
+    private final View.OnClickListener onAddClick;
+
+    public AddCardAdapter(View.OnClickListener onAddClick) {
+        this.onAddClick = onAddClick;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return FOOTER_ID;
+    }
+
+    @NonNull
+    @Override
+    public AddCardViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_add_card, parent, false);
+        view.setOnClickListener(onAddClick);
+        return new AddCardViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull AddCardViewHolder holder, int position) {
+    }
+
+    @Override
+    public int getItemCount() {
+        return 1;
+    }
+
+    static class AddCardViewHolder extends RecyclerView.ViewHolder {
+        AddCardViewHolder(@NonNull View itemView) {
+            super(itemView);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.provider.DocumentsContract.Document;
+
+import com.nightwithfireworks.wishlist.core.BackupManifest;
+import com.nightwithfireworks.wishlist.core.ChunkStore;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// a WishlistBackup folder inside the tree the user picked (or the picked folder itself, if it already is one):
+// chunks/ holds one file per chunk named by its id, and every backup adds a manifest-<time> file beside it.
+// the folder is listed once when opened, so contains() never goes back to the provider
+class BackupFolder implements ChunkStore {
+
+    static final String FOLDER_NAME = "WishlistBackup";
+    private static final String CHUNK_DIR = "chunks";
+    private static final String MANIFEST_PREFIX = "manifest-";
+    // written under this suffix and renamed when complete, so an interrupted write never looks like a chunk
+    private static final String PARTIAL_SUFFIX = ".part";
+    private static final String BINARY = "application/octet-stream";
+
+    private final ContentResolver resolver;
+    private final Uri tree;
+    private final String rootId;
+    private final String chunkDirId;
+    private final Map<String, String> files;
+    private final Map<String, String> chunks;
+
+    // create is false for restore, which fails with FileNotFoundException when there is no backup to read
+    BackupFolder(ContentResolver resolver, Uri tree, boolean create) throws IOException {
+        this.resolver = resolver;
+        this.tree = tree;
+
+        String treeId = DocumentsContract.getTreeDocumentId(tree);
+        Map<String, String> top = list(treeId);
+        if (top.containsKey(CHUNK_DIR)) {
+            rootId = treeId;
+            files = top;
+        } else {
+            rootId = directory(treeId, top, FOLDER_NAME, create);
+            files = list(rootId);
+        }
+        chunkDirId = directory(rootId, files, CHUNK_DIR, create);
+        chunks = list(chunkDirId);
+
+        removePartial(files);
+        removePartial(chunks);
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return chunks.containsKey(id);
+    }
+
+    @Override
+    public void put(String id, byte[] compressed, int length) throws IOException {
+        chunks.put(id, write(chunkDirId, id, out -> out.write(compressed, 0, length)));
+    }
+
+    @Override
+    public InputStream open(String id) throws IOException {
+        String documentId = chunks.get(id);
+        if (documentId == null) {
+            throw new FileNotFoundException("Backup chunk " + id + " is missing");
+        }
+        return openDocument(documentId);
+    }
+
+    Set<String> chunkIds() {
+        return new HashSet<>(chunks.keySet());
+    }
+
+    void deleteChunk(String id) throws FileNotFoundException {
+        String documentId = chunks.remove(id);
+        if (documentId != null) {
+            DocumentsContract.deleteDocument(resolver, documentUri(documentId));
+        }
+    }
+
+    // newest first
+    List<String> manifests() {
+        List<String> names = new ArrayList<>();
+        for (String name : files.keySet()) {
+            if (name.startsWith(MANIFEST_PREFIX)) {
+                names.add(name);
+            }
+        }
+        names.sort((a, b) -> Long.compare(manifestTime(b), manifestTime(a)));
+        return names;
+    }
+
+    BackupManifest readManifest(String name) throws IOException {
+        try (InputStream in = openDocument(files.get(name))) {
+            return BackupManifest.read(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    // the newest backup, or null when the folder has none
+    BackupManifest latestManifest() throws IOException {
+        List<String> names = manifests();
+        return names.isEmpty() ? null : readManifest(names.get(0));
+    }
+
+    void writeManifest(BackupManifest manifest) throws IOException {
+        String name = MANIFEST_PREFIX + manifest.getCreatedAt();
+        files.put(name, write(rootId, name, out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            manifest.write(writer);
+        }));
+    }
+
+    void deleteManifest(String name) throws FileNotFoundException {
+        String documentId = files.remove(name);
+        if (documentId != null) {
+            DocumentsContract.deleteDocument(resolver, documentUri(documentId));
+        }
+    }
+
+    private interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private String write(String parentId, String name, Content content) throws IOException {
+        Uri partial = DocumentsContract.createDocument(resolver, documentUri(parentId), BINARY, name + PARTIAL_SUFFIX);
+        if (partial == null) {
+            throw new IOException("Cannot create " + name + " in the backup folder");
+        }
+        try (OutputStream out = resolver.openOutputStream(partial, "w")) {
+            if (out == null) {
+                throw new FileNotFoundException(partial.toString());
+            }
+            content.writeTo(out);
+        } catch (IOException | RuntimeException e) {
+            DocumentsContract.deleteDocument(resolver, partial);
+            throw e;
+        }
+        Uri renamed = DocumentsContract.renameDocument(resolver, partial, name);
+        return DocumentsContract.getDocumentId(renamed != null ? renamed : partial);
+    }
+
+    private InputStream openDocument(String documentId) throws IOException {
+        InputStream in = resolver.openInputStream(documentUri(documentId));
+        if (in == null) {
+            throw new FileNotFoundException(documentId);
+        }
+        return in;
+    }
+
+    private String directory(String parentId, Map<String, String> children, String name, boolean create)
+            throws IOException {
+        String id = children.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (!create) {
+            throw new FileNotFoundException("No " + FOLDER_NAME + " folder here");
+        }
+        Uri created = DocumentsContract.createDocument(resolver, documentUri(parentId), Document.MIME_TYPE_DIR, name);
+        if (created == null) {
+            throw new IOException("Cannot create " + name + " in the backup folder");
+        }
+        return DocumentsContract.getDocumentId(created);
+    }
+
+    // display name to document id
+    private Map<String, String> list(String parentId) throws IOException {
+        Map<String, String> children = new HashMap<>();
+        Uri uri = DocumentsContract.buildChildDocumentsUriUsingTree(tree, parentId);
+        try (Cursor cursor = resolver.query(uri,
+                new String[]{Document.COLUMN_DOCUMENT_ID, Document.COLUMN_DISPLAY_NAME}, null, null, null)) {
+            if (cursor == null) {
+                throw new FileNotFoundException(uri.toString());
+            }
+            while (cursor.moveToNext()) {
+                children.put(cursor.getString(1), cursor.getString(0));
+            }
+        }
+        return children;
+    }
+
+    private void removePartial(Map<String, String> children) throws FileNotFoundException {
+        List<String> partial = new ArrayList<>();
+        for (String name : children.keySet()) {
+            if (name.endsWith(PARTIAL_SUFFIX)) {
+                partial.add(name);
+            }
+        }
+        for (String name : partial) {
+            DocumentsContract.deleteDocument(resolver, documentUri(children.remove(name)));
+        }
+    }
+
+    private Uri documentUri(String documentId) {
+        return DocumentsContract.buildDocumentUriUsingTree(tree, documentId);
+    }
+
+    private static long manifestTime(String name) {
+        try {
+            return Long.parseLong(name.substring(MANIFEST_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.nightwithfireworks.wishlist;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+// mutable bitmaps no longer on screen, keyed by allocation size so decodes can write into them via inBitmap
+class BitmapPool implements MemoryBudget.Trimmable {
+
+    private final long maxBytes;
+    private final TreeMap<Integer, ArrayDeque<Bitmap>> bySize = new TreeMap<>();
+    private long sizeBytes = 0;
+
+    BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized void put(Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (size > maxBytes / 2) {
+            return;
+        }
+        bySize.computeIfAbsent(size, key -> new ArrayDeque<>()).push(bitmap);
+        sizeBytes += size;
+        trimToBytes(maxBytes);
+    }
+
+    // the smallest pooled bitmap that fits, but not one more than twice the size needed
+    synchronized Bitmap get(int minBytes) {
+        Map.Entry<Integer, ArrayDeque<Bitmap>> entry = bySize.ceilingEntry(minBytes);
+        if (entry == null || entry.getKey() > minBytes * 2) {
+            return null;
+        }
+        Bitmap bitmap = entry.getValue().pop();
+        if (entry.getValue().isEmpty()) {
+            bySize.remove(entry.getKey());
+        }
+        sizeBytes -= entry.getKey();
+        return bitmap;
+    }
+
+    @Override
+    public synchronized long getUsedBytes() {
+        return sizeBytes;
+    }
+
+    @Override
+    public synchronized void trim(float keepFraction) {
+        trimToBytes((long) (maxBytes * keepFraction));
+    }
+
+    // drops the largest bitmaps first, they free the most per eviction
+    private void trimToBytes(long targetBytes) {
+        while (sizeBytes > targetBytes && !bySize.isEmpty()) {
+            Map.Entry<Integer, ArrayDeque<Bitmap>> largest = bySize.lastEntry();
+            largest.getValue().pop();
+            if (largest.getValue().isEmpty()) {
+                bySize.remove(largest.getKey());
+            }
+            sizeBytes -= largest.getKey();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.nightwithfireworks.wishlist;
+
+import android.text.format.DateUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.nightwithfireworks.wishlist.core.Deposit;
+import com.nightwithfireworks.wishlist.core.Money;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DepositAdapter extends RecyclerView.Adapter<DepositAdapter.DepositViewHolder> {
+
+    private final List<Deposit> deposits = new ArrayList<>();
+
+    public DepositAdapter() {
+        setHasStableIds(true);
+    }
+
+    public void append(List<Deposit> page) {
+        int start = deposits.size();
+        deposits.addAll(page);
+        notifyItemRangeInserted(start, page.size());
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return deposits.get(position).getId();
+    }
+
+    @Override
+    public int getItemCount() {
+        return deposits.size();
+    }
+
+    @NonNull
+    @Override
+    public DepositViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_deposit, parent, false);
+        return new DepositViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull DepositViewHolder holder, int position) {
+        Deposit deposit = deposits.get(position);
+        holder.tvDate.setText(DateUtils.formatDateTime(holder.itemView.getContext(), deposit.getCreatedAt(),
+                DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_SHOW_TIME | DateUtils.FORMAT_ABBREV_MONTH));
+        holder.tvAmount.setText("+฿" + Money.formatFixed(deposit.getAmountSatang()));
+    }
+
+    static class DepositViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvDate;
+        final TextView tvAmount;
+
+        DepositViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvDate = itemView.findViewById(R.id.tvDepositDate);
+            tvAmount = itemView.findViewById(R.id.tvDepositAmount);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import android.app.Activity;
 import android.content.Intent;
 import android.os.Bundle;
 import android.text.InputType;
+import android.text.format.DateUtils;
+import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ImageView;
@@ -12,17 +14,30 @@ import android.widget.Toast;
 import androidx.activity.OnBackPressedCallback; // อย่าลืม Import บรรทัดนี้
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.nightwithfireworks.wishlist.core.Financials;
+import com.nightwithfireworks.wishlist.core.Money;
+import com.nightwithfireworks.wishlist.core.SavingsForecast;
+import com.nightwithfireworks.wishlist.core.Wish;
 
 public class DetailActivity extends AppCompatActivity {
 
-    private TextView tvName, tvOriginalPrice, tvSavedAmount, tvRemainingAmount;
+    private static final int HISTORY_PAGE_SIZE = 30;
+
+    private TextView tvName, tvOriginalPrice, tvSavedAmount, tvRemainingAmount, tvForecast, btnHistory;
     private ImageView imgDetail, btnBack;
     private Button btnAddDeposit, btnDelete;
 
-    private int itemIndex;
-    private double originalPrice;
-    private double currentSavedAmount;
+    private WishRepository repository;
+    private ImageLoader imageLoader;
+    private long wishId;
+    private long priceSatang;
+    private long savedSatang;
     private boolean isDeleted = false;
+    private boolean isUpdated = false;
+    private final ForecastEngine.Listener forecastListener = this::updateForecast;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -33,34 +48,29 @@ public class DetailActivity extends AppCompatActivity {
         tvOriginalPrice = findViewById(R.id.tvOriginalPrice);
         tvSavedAmount = findViewById(R.id.tvSavedAmount);
         tvRemainingAmount = findViewById(R.id.tvRemainingAmount);
+        tvForecast = findViewById(R.id.tvForecast);
         imgDetail = findViewById(R.id.detailImage);
         btnBack = findViewById(R.id.btnBack);
         btnAddDeposit = findViewById(R.id.btnAddDeposit);
         btnDelete = findViewById(R.id.btnDelete);
+        btnHistory = findViewById(R.id.btnHistory);
 
-        Intent intent = getIntent();
-        itemIndex = intent.getIntExtra("itemIndex", -1);
-        String name = intent.getStringExtra("name");
-
-        originalPrice = intent.getDoubleExtra("price", 0.0);
-        currentSavedAmount = intent.getDoubleExtra("savedAmount", 0.0);
+        repository = WishRepository.getInstance(this);
+        imageLoader = ImageLoader.getInstance(this);
+        wishId = getIntent().getLongExtra("wishId", -1);
 
-        if (itemIndex == -1) {
-            Toast.makeText(this, "Error: Item not found", Toast.LENGTH_SHORT).show();
-            finish();
+        if (wishId == -1) {
+            showNotFound();
             return;
         }
 
-        tvName.setText(name);
-        updateFinancialUI();
-
         getOnBackPressedDispatcher().addCallback(this, new OnBackPressedCallback(true) {
             @Override
             public void handleOnBackPressed() {
                 Intent resultIntent = new Intent();
-                resultIntent.putExtra("itemIndex", itemIndex);
+                resultIntent.putExtra("wishId", wishId);
                 resultIntent.putExtra("isDeleted", isDeleted);
-                resultIntent.putExtra("savedAmount", currentSavedAmount);
+                resultIntent.putExtra("isUpdated", isUpdated);
                 setResult(Activity.RESULT_OK, resultIntent);
                 finish();
             }
@@ -68,34 +78,61 @@ public class DetailActivity extends AppCompatActivity {
 
         btnBack.setOnClickListener(v -> getOnBackPressedDispatcher().onBackPressed());
 
-        btnAddDeposit.setOnClickListener(v -> showAddDepositDialog());
+        btnAddDeposit.setEnabled(false);
+        btnDelete.setEnabled(false);
+        repository.getForecasts().addListener(forecastListener);
+        repository.find(wishId, this::bindWish);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (repository != null) {
+            repository.getForecasts().removeListener(forecastListener);
+            imageLoader.clear(imgDetail);
+        }
+    }
 
+    private void bindWish(Wish wish) {
+        if (wish == null) {
+            showNotFound();
+            return;
+        }
+
+        priceSatang = wish.getPriceSatang();
+        savedSatang = wish.getSavedSatang();
+
+        tvName.setText(wish.getName());
+        updateFinancialUI();
+
+        btnDelete.setEnabled(true);
+        btnAddDeposit.setOnClickListener(v -> showAddDepositDialog());
         btnDelete.setOnClickListener(v -> showDeleteConfirmDialog());
+        btnHistory.setOnClickListener(v -> showDepositHistoryDialog());
+    }
+
+    private void showNotFound() {
+        Toast.makeText(this, "Error: Item not found", Toast.LENGTH_SHORT).show();
+        finish();
     }
 
     private void updateFinancialUI() {
-        double remaining = Math.max(0, originalPrice - currentSavedAmount);
+        long remaining = Financials.remaining(priceSatang, savedSatang);
 
-        tvOriginalPrice.setText(getString(R.string.price_label) + String.format("%.2f", originalPrice));
-        tvSavedAmount.setText(getString(R.string.saved_label) + String.format("%.2f", currentSavedAmount));
-        tvRemainingAmount.setText(getString(R.string.remaining_label) + String.format("%.2f", remaining));
+        tvOriginalPrice.setText(getString(R.string.price_label) + Money.formatFixed(priceSatang));
+        tvSavedAmount.setText(getString(R.string.saved_label) + Money.formatFixed(savedSatang));
+        tvRemainingAmount.setText(getString(R.string.remaining_label) + Money.formatFixed(remaining));
 
-        double percentage = 0;
-        if (originalPrice > 0) {
-            percentage = (Math.min(currentSavedAmount, originalPrice) / originalPrice) * 100;
-        } else if (currentSavedAmount > 0) {
-            percentage = 100;
-        }
+        // decoded at the view's size through the budgeted cache instead of the full 1024px drawable
+        int stage = Financials.growthStage(priceSatang, savedSatang);
+        int stageRes = stage == 3 ? R.drawable.forgy_state3
+                : stage == 2 ? R.drawable.forgy_state2
+                : R.drawable.forgy_state1;
+        imageLoader.load(imgDetail, ImageLoader.resourceUri(this, stageRes), 0);
 
-        if (percentage >= 100) {
-            imgDetail.setImageResource(R.drawable.forgy_state3);
-        } else if (percentage >= 31) {
-            imgDetail.setImageResource(R.drawable.forgy_state2);
-        } else {
-            imgDetail.setImageResource(R.drawable.forgy_state1);
-        }
+        updateForecast();
 
-        if (percentage >= 100) {
+        if (Financials.isComplete(priceSatang, savedSatang)) {
             btnAddDeposit.setEnabled(false);
             btnAddDeposit.setText(getString(R.string.completed));
         } else {
@@ -104,6 +141,19 @@ public class DetailActivity extends AppCompatActivity {
         }
     }
 
+    private void updateForecast() {
+        long completion = repository.getForecasts().get(wishId);
+        if (Financials.isComplete(priceSatang, savedSatang) || completion == ForecastEngine.PENDING) {
+            tvForecast.setText("");
+        } else if (completion == SavingsForecast.UNKNOWN) {
+            tvForecast.setText(getString(R.string.forecast_need_more));
+        } else {
+            String date = DateUtils.formatDateTime(this, completion,
+                    DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_SHOW_YEAR);
+            tvForecast.setText(getString(R.string.forecast_detail, date));
+        }
+    }
+
     private void showAddDepositDialog() {
         if (!btnAddDeposit.isEnabled()) {
             Toast.makeText(this, getString(R.string.completed), Toast.LENGTH_SHORT).show();
@@ -120,16 +170,19 @@ public class DetailActivity extends AppCompatActivity {
 
         builder.setPositiveButton(getString(R.string.btn_confirm_deposit), (dialog, which) -> {
             try {
-                double deposit = Double.parseDouble(input.getText().toString());
-                double remaining = Math.max(0, originalPrice - currentSavedAmount);
+                long deposit = Money.parseSatang(input.getText().toString());
+                Financials.DepositCheck check = Financials.checkDeposit(priceSatang, savedSatang, deposit);
 
-                if (deposit <= 0) {
+                if (check == Financials.DepositCheck.INVALID_AMOUNT) {
                     Toast.makeText(this, getString(R.string.error_invalid_amount), Toast.LENGTH_SHORT).show();
-                } else if (deposit > remaining && remaining > 0) {
-                    String msg = getString(R.string.error_amount_exceed) + String.format(" ฿%.2f", remaining);
+                } else if (check == Financials.DepositCheck.EXCEEDS_REMAINING) {
+                    long remaining = Financials.remaining(priceSatang, savedSatang);
+                    String msg = getString(R.string.error_amount_exceed) + " ฿" + Money.formatFixed(remaining);
                     Toast.makeText(this, msg, Toast.LENGTH_LONG).show();
                 } else {
-                    currentSavedAmount += deposit;
+                    savedSatang += deposit;
+                    repository.addDeposit(wishId, deposit);
+                    isUpdated = true;
                     updateFinancialUI();
                 }
             } catch (NumberFormatException e) {
@@ -140,11 +193,62 @@ public class DetailActivity extends AppCompatActivity {
         builder.show();
     }
 
+    private void showDepositHistoryDialog() {
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_deposit_history, null);
+        RecyclerView rvHistory = dialogView.findViewById(R.id.rvHistory);
+        TextView tvEmpty = dialogView.findViewById(R.id.tvHistoryEmpty);
+
+        DepositAdapter adapter = new DepositAdapter();
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        rvHistory.setLayoutManager(layoutManager);
+        rvHistory.setAdapter(adapter);
+
+        Runnable loadMore = new Runnable() {
+            private boolean loading = false;
+            private boolean reachedEnd = false;
+            private long beforeId = Long.MAX_VALUE;
+
+            @Override
+            public void run() {
+                if (loading || reachedEnd) {
+                    return;
+                }
+                loading = true;
+                repository.loadDeposits(wishId, beforeId, HISTORY_PAGE_SIZE, page -> {
+                    loading = false;
+                    reachedEnd = page.size() < HISTORY_PAGE_SIZE;
+                    if (!page.isEmpty()) {
+                        beforeId = page.get(page.size() - 1).getId();
+                        adapter.append(page);
+                    }
+                    tvEmpty.setVisibility(adapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+                });
+            }
+        };
+
+        rvHistory.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - 5) {
+                    loadMore.run();
+                }
+            }
+        });
+        loadMore.run();
+
+        new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.deposit_history))
+                .setView(dialogView)
+                .setNegativeButton(getString(R.string.btn_close), null)
+                .show();
+    }
+
     private void showDeleteConfirmDialog() {
         new AlertDialog.Builder(this)
                 .setTitle(getString(R.string.dialog_delete_title))
                 .setMessage(getString(R.string.dialog_delete_msg))
                 .setPositiveButton(getString(R.string.btn_confirm_delete), (dialog, which) -> {
+                    repository.delete(wishId);
                     isDeleted = true;
                     getOnBackPressedDispatcher().onBackPressed();
                 })
@@ -0,0 +1,112 @@
+package com.nightwithfireworks.wishlist;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.nightwithfireworks.wishlist.core.DepositSummary;
+import com.nightwithfireworks.wishlist.core.SavingsForecast;
+import com.nightwithfireworks.wishlist.core.Wish;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// completion dates per wish, computed off the main thread on first use and kept until that wish gets a deposit
+// or the day changes, since a forecast for a wish nobody deposits into moves forward with today's date
+public class ForecastEngine {
+
+    public static final long PENDING = -2;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    public interface Listener {
+        void onForecastsChanged();
+    }
+
+    private final WishStore store;
+    private final Executor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<Long, Long> cache = new ConcurrentHashMap<>();
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean notifyPosted = new AtomicBoolean(false);
+    private final Clock clock = Clock.systemUTC();
+    private volatile long cacheDay = -1;
+
+    // the executor must see every committed deposit, so the repository hands in one that drains its writes first
+    ForecastEngine(WishStore store, Executor executor) {
+        this.store = store;
+        this.executor = executor;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // a map lookup on the calling thread; a miss queues the computation and returns PENDING
+    public long get(long wishId) {
+        long today = clock.millis() / DAY_MS;
+        if (today != cacheDay) {
+            cacheDay = today;
+            cache.clear();
+        }
+        Long cached = cache.get(wishId);
+        if (cached != null) {
+            return cached;
+        }
+        request(wishId);
+        return PENDING;
+    }
+
+    void invalidate(long wishId) {
+        cache.remove(wishId);
+        request(wishId);
+    }
+
+    void forget(long wishId) {
+        cache.remove(wishId);
+    }
+
+    void forgetAll() {
+        cache.clear();
+    }
+
+    private void request(long wishId) {
+        if (queued.add(wishId)) {
+            executor.execute(() -> compute(wishId));
+        }
+    }
+
+    private void compute(long wishId) {
+        queued.remove(wishId);
+        Wish wish = store.find(wishId);
+        if (wish == null) {
+            cache.remove(wishId);
+            return;
+        }
+
+        long completion;
+        try (PerfMetrics.Section ignored = PerfMetrics.section("ForecastEngine.compute")) {
+            DepositSummary deposits = store.summarizeDeposits(wishId);
+            completion = SavingsForecast.estimateCompletion(deposits, wish.getRemainingSatang(), clock);
+        }
+        cache.put(wishId, completion);
+
+        if (notifyPosted.compareAndSet(false, true)) {
+            mainHandler.post(() -> {
+                notifyPosted.set(false);
+                for (Listener listener : listeners) {
+                    listener.onForecastsChanged();
+                }
+            });
+        }
+    }
+}
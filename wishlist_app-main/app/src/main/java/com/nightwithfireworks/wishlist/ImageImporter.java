@@ -0,0 +1,226 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.ImageDecoder;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Size;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+// copies a picked image into app storage once, so cards never go back to the original provider.
+// files are named by the hash of the source bytes, so the same photo is stored and decoded once;
+// the images table counts references, and files nobody points at are removed by sweep()
+public class ImageImporter {
+
+    static final String IMAGE_DIR = "images";
+    private static final int CARD_MAX_EDGE = 512;
+    private static final int QUALITY = 85;
+
+    private static ImageImporter instance;
+
+    private final ContentResolver contentResolver;
+    private final File imageDir;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // imported but not yet saved on a wish, so the reference count cannot protect them yet
+    private final Map<String, Integer> pinned = new HashMap<>();
+    private final Set<String> orphans = new HashSet<>();
+    private CompletableFuture<?> tail = CompletableFuture.completedFuture(null);
+
+    public static synchronized ImageImporter getInstance(Context context) {
+        if (instance == null) {
+            instance = new ImageImporter(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // each Robolectric test gets its own files folder
+    @VisibleForTesting
+    static synchronized void resetForTesting() {
+        if (instance != null) {
+            instance.executor.shutdown();
+            instance = null;
+        }
+    }
+
+    private ImageImporter(Context context) {
+        contentResolver = context.getContentResolver();
+        imageDir = imageDir(context);
+    }
+
+    static File imageDir(Context context) {
+        return new File(context.getFilesDir(), IMAGE_DIR);
+    }
+
+    // a bare file name from the images folder, as backups store them, never a path that could point outside it
+    static boolean isImageName(String name) {
+        return name != null && !name.isEmpty() && name.indexOf(':') < 0 && name.indexOf('/') < 0
+                && !name.startsWith(".");
+    }
+
+    // a file:// uri of a file directly inside imageDir. Any other file: uri, e.g. one carried in by an import file,
+    // is someone else's file: it is never reference counted and never deleted
+    static boolean isImported(File imageDir, String uri) {
+        if (uri == null || !uri.startsWith(ContentResolver.SCHEME_FILE + ":")) {
+            return false;
+        }
+        String path = Uri.parse(uri).getPath();
+        if (path == null) {
+            return false;
+        }
+        try {
+            File parent = new File(path).getCanonicalFile().getParentFile();
+            return imageDir.getCanonicalFile().equals(parent);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // completes with a pinned file:// uri, or "" when the source could not be read; call release() once
+    // the uri is stored on a wish or abandoned. imports run one at a time in the order requested
+    public synchronized CompletableFuture<String> importImage(Uri source) {
+        CompletableFuture<String> result = tail.handleAsync((previous, error) -> importNow(source), executor);
+        tail = result;
+        return result;
+    }
+
+    public synchronized void release(String uri) {
+        Integer count = pinned.get(uri);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            pinned.put(uri, count - 1);
+        } else {
+            pinned.remove(uri);
+        }
+        orphans.add(uri);
+    }
+
+    // the store found no wish left pointing at this file
+    public synchronized void markOrphan(String uri) {
+        orphans.add(uri);
+    }
+
+    // run on the writer thread after pending writes are committed, so the counts it checks are current
+    public synchronized void sweep(Predicate<String> unreferenced) {
+        Iterator<String> it = orphans.iterator();
+        while (it.hasNext()) {
+            String uri = it.next();
+            if (pinned.containsKey(uri)) {
+                continue;
+            }
+            it.remove();
+            if (isImported(imageDir, uri) && unreferenced.test(uri)) {
+                new File(Uri.parse(uri).getPath()).delete();
+                PerfMetrics.increment("image.files_removed");
+            }
+        }
+    }
+
+    private String importNow(Uri source) {
+        String uri = null;
+        try (PerfMetrics.Section ignored = PerfMetrics.section("ImageImporter.import")) {
+            File target = new File(imageDir, contentHash(source) + ".webp");
+            uri = Uri.fromFile(target).toString();
+            synchronized (this) {
+                pinned.merge(uri, 1, Integer::sum);
+            }
+            if (target.exists()) {
+                PerfMetrics.increment("image.import_deduplicated");
+                return uri;
+            }
+
+            Bitmap bitmap = decodeBounded(source, CARD_MAX_EDGE);
+            writeWebp(bitmap, target);
+            bitmap.recycle();
+            return uri;
+        } catch (IOException | SecurityException e) {
+            e.printStackTrace();
+            if (uri != null) {
+                release(uri);
+            }
+            return "";
+        }
+    }
+
+    private String contentHash(Uri source) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = contentResolver.openInputStream(source)) {
+            if (in == null) {
+                throw new IOException("cannot open " + source);
+            }
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        byte[] hash = digest.digest();
+        StringBuilder name = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            name.append(String.format("%02x", b));
+        }
+        return name.toString();
+    }
+
+    private Bitmap decodeBounded(Uri uri, int maxEdge) throws IOException {
+        ImageDecoder.Source source = ImageDecoder.createSource(contentResolver, uri);
+        return ImageDecoder.decodeBitmap(source, (decoder, info, src) -> {
+            Size size = info.getSize();
+            float scale = (float) maxEdge / Math.max(size.getWidth(), size.getHeight());
+            if (scale < 1f) {
+                decoder.setTargetSize(
+                        Math.max(1, Math.round(size.getWidth() * scale)),
+                        Math.max(1, Math.round(size.getHeight() * scale)));
+            }
+            decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+        });
+    }
+
+    @SuppressWarnings("deprecation")
+    private void writeWebp(Bitmap bitmap, File target) throws IOException {
+        Bitmap.CompressFormat format = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.WEBP;
+
+        if (!imageDir.exists() && !imageDir.mkdirs()) {
+            throw new IOException("cannot create " + imageDir);
+        }
+        File temp = new File(imageDir, target.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            bitmap.compress(format, QUALITY, out);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("cannot rename " + temp);
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.ImageDecoder;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.util.Size;
+import android.view.ViewTreeObserver;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ImageLoader {
+
+    private static final String DISK_CACHE_DIR = "thumbnails";
+    private static final long DISK_CACHE_MAX_BYTES = 32L * 1024 * 1024;
+    private static final int DECODE_THREADS = 2;
+    private static final int THUMBNAIL_QUALITY = 85;
+
+    private static ImageLoader instance;
+
+    private final ContentResolver contentResolver;
+    private final File diskCacheDir;
+    private final LruCache<String, Bitmap> memoryCache;
+    private final BitmapPool pool;
+    // a bitmap goes back to the pool only after it has left the memory cache and no view or delivery holds it
+    private final Object shownLock = new Object();
+    private final Map<Bitmap, Integer> shown = new WeakHashMap<>();
+    private final Set<Bitmap> uncached = Collections.newSetFromMap(new WeakHashMap<>());
+    private final ExecutorService executor = Executors.newFixedThreadPool(DECODE_THREADS);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Object diskLock = new Object();
+    private long diskCacheBytes = -1;
+
+    public static synchronized ImageLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new ImageLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ImageLoader(Context context) {
+        contentResolver = context.getContentResolver();
+        diskCacheDir = new File(context.getCacheDir(), DISK_CACHE_DIR);
+
+        MemoryBudget budget = MemoryBudget.getInstance(context);
+        pool = new BitmapPool(budget.getBitmapPoolBytes());
+        int maxKb = (int) (budget.getImageCacheBytes() / 1024);
+        memoryCache = new LruCache<String, Bitmap>(maxKb) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return Math.max(1, bitmap.getAllocationByteCount() / 1024);
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (oldValue != newValue) {
+                    recycleWhenHidden(oldValue);
+                }
+            }
+        };
+
+        budget.register("image_cache", new MemoryBudget.Trimmable() {
+            @Override
+            public long getUsedBytes() {
+                return memoryCache.size() * 1024L;
+            }
+
+            @Override
+            public void trim(float keepFraction) {
+                memoryCache.trimToSize((int) (memoryCache.maxSize() * keepFraction));
+            }
+        });
+        budget.register("bitmap_pool", pool);
+    }
+
+    public static String resourceUri(Context context, int drawableRes) {
+        return ContentResolver.SCHEME_ANDROID_RESOURCE + "://" + context.getPackageName() + "/" + drawableRes;
+    }
+
+    public void load(ImageView view, String uri, int placeholderRes) {
+        cancel(view);
+        Bitmap previous = detachShown(view);
+        view.setImageResource(placeholderRes);
+        release(previous);
+        if (uri == null || uri.isEmpty()) {
+            return;
+        }
+
+        Request request = new Request(view, uri);
+        view.setTag(R.id.image_request, request);
+        if (view.getWidth() > 0 && view.getHeight() > 0) {
+            request.start(view.getWidth(), view.getHeight());
+        } else {
+            view.getViewTreeObserver().addOnPreDrawListener(request);
+        }
+    }
+
+    public void cancel(ImageView view) {
+        Object tag = view.getTag(R.id.image_request);
+        if (tag instanceof Request) {
+            ((Request) tag).cancel();
+        }
+        view.setTag(R.id.image_request, null);
+    }
+
+    // for views that go off screen for good, so their bitmap can be reused
+    public void clear(ImageView view) {
+        cancel(view);
+        Bitmap previous = detachShown(view);
+        view.setImageDrawable(null);
+        release(previous);
+    }
+
+    // share of requests served without a full decode, in percent
+    public int getCacheHitPercent() {
+        long hits = PerfMetrics.count("image.memory_hit") + PerfMetrics.count("image.disk_hit");
+        long total = hits + PerfMetrics.count("image.decode");
+        return total == 0 ? 0 : (int) (hits * 100 / total);
+    }
+
+    private Bitmap detachShown(ImageView view) {
+        Object tag = view.getTag(R.id.image_bitmap);
+        view.setTag(R.id.image_bitmap, null);
+        return tag instanceof Bitmap ? (Bitmap) tag : null;
+    }
+
+    private void retain(Bitmap bitmap) {
+        synchronized (shownLock) {
+            shown.merge(bitmap, 1, Integer::sum);
+        }
+    }
+
+    private void release(Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+        synchronized (shownLock) {
+            Integer count = shown.get(bitmap);
+            if (count != null && count > 1) {
+                shown.put(bitmap, count - 1);
+                return;
+            }
+            shown.remove(bitmap);
+            if (!uncached.remove(bitmap)) {
+                return;
+            }
+        }
+        pool.put(bitmap);
+    }
+
+    private void recycleWhenHidden(Bitmap bitmap) {
+        synchronized (shownLock) {
+            if (shown.containsKey(bitmap)) {
+                uncached.add(bitmap);
+                return;
+            }
+        }
+        pool.put(bitmap);
+    }
+
+    private static String cacheKey(String uri, int width, int height) {
+        return uri + "@" + width + "x" + height;
+    }
+
+    private Bitmap loadBitmap(String uri, int width, int height, String key) {
+        File cached = diskCacheFile(key);
+        if (cached.exists()) {
+            Bitmap bitmap;
+            try (PerfMetrics.Section ignored = PerfMetrics.section("ImageLoader.diskRead")) {
+                bitmap = decodeFile(cached.getPath(), width, height);
+            }
+            if (bitmap != null) {
+                cached.setLastModified(System.currentTimeMillis());
+                PerfMetrics.increment("image.disk_hit");
+                return bitmap;
+            }
+        }
+
+        try {
+            Bitmap bitmap;
+            try (PerfMetrics.Section ignored = PerfMetrics.section("ImageLoader.decode")) {
+                Uri source = Uri.parse(uri);
+                bitmap = ContentResolver.SCHEME_FILE.equals(source.getScheme())
+                        ? decodeFile(source.getPath(), width, height)
+                        : decodeSampled(source, width, height);
+            }
+            if (bitmap == null) {
+                return null;
+            }
+            PerfMetrics.increment("image.decode");
+            // imported images are already small local files and bundled drawables can change with an update,
+            // a thumbnail copy of either would only duplicate them or go stale
+            if (!uri.startsWith(ContentResolver.SCHEME_FILE) && !uri.startsWith(ContentResolver.SCHEME_ANDROID_RESOURCE)) {
+                writeToDiskCache(cached, bitmap);
+            }
+            return bitmap;
+        } catch (IOException | SecurityException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private Bitmap decodeSampled(Uri uri, int width, int height) throws IOException {
+        ImageDecoder.Source source = ImageDecoder.createSource(contentResolver, uri);
+        return ImageDecoder.decodeBitmap(source, (decoder, info, src) -> {
+            Size size = info.getSize();
+            float scale = Math.max((float) width / size.getWidth(), (float) height / size.getHeight());
+            if (scale < 1f) {
+                decoder.setTargetSize(
+                        Math.max(1, Math.round(size.getWidth() * scale)),
+                        Math.max(1, Math.round(size.getHeight() * scale)));
+            }
+            decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+            // so the bitmap can be handed to the pool later
+            decoder.setMutableRequired(true);
+        });
+    }
+
+    // BitmapFactory rather than ImageDecoder, because only it can decode into a pooled bitmap
+    private Bitmap decodeFile(String path, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= width && options.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        int decodedWidth = (options.outWidth + sampleSize - 1) / sampleSize;
+        int decodedHeight = (options.outHeight + sampleSize - 1) / sampleSize;
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        options.inBitmap = pool.get(decodedWidth * decodedHeight * 4);
+        try {
+            Bitmap bitmap = BitmapFactory.decodeFile(path, options);
+            if (bitmap != null && options.inBitmap != null) {
+                PerfMetrics.increment("image.bitmap_reuse");
+            }
+            return bitmap;
+        } catch (IllegalArgumentException e) {
+            // the pooled bitmap was rejected; it is in an unknown state now, so let it go
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(path, options);
+        }
+    }
+
+    private File diskCacheFile(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                name.append(String.format("%02x", b));
+            }
+            return new File(diskCacheDir, name.toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void writeToDiskCache(File target, Bitmap bitmap) {
+        Bitmap.CompressFormat format = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.WEBP;
+
+        synchronized (diskLock) {
+            if (!diskCacheDir.exists() && !diskCacheDir.mkdirs()) {
+                return;
+            }
+            File temp = new File(diskCacheDir, target.getName() + ".tmp");
+            try (OutputStream out = new FileOutputStream(temp)) {
+                bitmap.compress(format, THUMBNAIL_QUALITY, out);
+            } catch (IOException e) {
+                e.printStackTrace();
+                temp.delete();
+                return;
+            }
+            if (!temp.renameTo(target)) {
+                temp.delete();
+                return;
+            }
+            if (diskCacheBytes < 0) {
+                diskCacheBytes = directorySize();
+            } else {
+                diskCacheBytes += target.length();
+            }
+            trimDiskCache();
+        }
+    }
+
+    private long directorySize() {
+        long total = 0;
+        File[] files = diskCacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                total += file.length();
+            }
+        }
+        return total;
+    }
+
+    private void trimDiskCache() {
+        if (diskCacheBytes <= DISK_CACHE_MAX_BYTES) {
+            return;
+        }
+        File[] files = diskCacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (diskCacheBytes <= DISK_CACHE_MAX_BYTES * 3 / 4) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                diskCacheBytes -= length;
+            }
+        }
+    }
+
+    private final class Request implements Runnable, ViewTreeObserver.OnPreDrawListener {
+        private final ImageView view;
+        private final String uri;
+        private String key;
+        private int width;
+        private int height;
+        private volatile boolean cancelled;
+        private Future<?> future;
+
+        Request(ImageView view, String uri) {
+            this.view = view;
+            this.uri = uri;
+        }
+
+        void start(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.key = cacheKey(uri, width, height);
+
+            Bitmap cached;
+            // under the lock, so an eviction racing with this hit sees the bitmap as held
+            synchronized (shownLock) {
+                cached = memoryCache.get(key);
+                if (cached != null) {
+                    retain(cached);
+                }
+            }
+            if (cached != null) {
+                PerfMetrics.increment("image.memory_hit");
+                deliver(cached);
+                return;
+            }
+            future = executor.submit(this);
+        }
+
+        @Override
+        public boolean onPreDraw() {
+            if (view.getWidth() > 0 && view.getHeight() > 0) {
+                removePreDrawListener();
+                if (!cancelled) {
+                    start(view.getWidth(), view.getHeight());
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            Bitmap bitmap = loadBitmap(uri, width, height, key);
+            if (bitmap == null) {
+                return;
+            }
+            // held until delivered, so the cache cannot hand it to the pool on the way
+            retain(bitmap);
+            memoryCache.put(key, bitmap);
+            mainHandler.post(() -> deliver(bitmap));
+        }
+
+        // takes over the hold placed by start() or run()
+        private void deliver(Bitmap bitmap) {
+            if (cancelled || view.getTag(R.id.image_request) != this) {
+                release(bitmap);
+                return;
+            }
+            view.setTag(R.id.image_request, null);
+            Bitmap previous = detachShown(view);
+            view.setImageBitmap(bitmap);
+            view.setTag(R.id.image_bitmap, bitmap);
+            release(previous);
+        }
+
+        void cancel() {
+            cancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+            removePreDrawListener();
+        }
+
+        private void removePreDrawListener() {
+            ViewTreeObserver observer = view.getViewTreeObserver();
+            if (observer.isAlive()) {
+                observer.removeOnPreDrawListener(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+
+// inflates layouts on a background looper thread ahead of use, so the main thread only binds them;
+// views are handed over before they are ever attached, and an empty pool falls back to inflating inline
+public class LayoutPrefetcher {
+
+    private static final String TAG = "LayoutPrefetcher";
+
+    private final LayoutInflater inflater;
+    private final LayoutInflater backgroundInflater;
+    private final HandlerThread thread = new HandlerThread("layout-prefetch", Process.THREAD_PRIORITY_BACKGROUND);
+    private final Handler handler;
+    // both guarded by ready
+    private final SparseArray<ArrayDeque<View>> ready = new SparseArray<>();
+    private final SparseIntArray targets = new SparseIntArray();
+
+    public LayoutPrefetcher(Context context) {
+        // cloned from the activity's inflater so prefetched widgets get the same AppCompat views as inline ones
+        inflater = LayoutInflater.from(context);
+        backgroundInflater = inflater.cloneInContext(context);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    // keeps count views of layoutId ready; parent only supplies layout params and is never attached to
+    public void keep(int layoutId, @Nullable ViewGroup parent, int count) {
+        synchronized (ready) {
+            targets.put(layoutId, count);
+        }
+        fill(layoutId, parent);
+    }
+
+    public View obtain(int layoutId, @Nullable ViewGroup parent) {
+        View view;
+        synchronized (ready) {
+            ArrayDeque<View> queue = ready.get(layoutId);
+            view = queue == null ? null : queue.poll();
+        }
+        if (view != null) {
+            PerfMetrics.increment("prefetch.hit");
+        } else {
+            PerfMetrics.increment("prefetch.miss");
+            view = inflater.inflate(layoutId, parent, false);
+        }
+        fill(layoutId, parent);
+        return view;
+    }
+
+    public void quit() {
+        handler.removeCallbacksAndMessages(null);
+        thread.quitSafely();
+        synchronized (ready) {
+            ready.clear();
+        }
+    }
+
+    private void fill(int layoutId, @Nullable ViewGroup parent) {
+        handler.post(() -> {
+            while (true) {
+                synchronized (ready) {
+                    ArrayDeque<View> queue = ready.get(layoutId);
+                    int size = queue == null ? 0 : queue.size();
+                    if (size >= targets.get(layoutId)) {
+                        return;
+                    }
+                }
+                View view;
+                try (PerfMetrics.Section ignored = PerfMetrics.section("LayoutPrefetcher.inflate")) {
+                    view = backgroundInflater.inflate(layoutId, parent, false);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Prefetch failed, inflating inline from now on", e);
+                    synchronized (ready) {
+                        targets.put(layoutId, 0);
+                    }
+                    return;
+                }
+                synchronized (ready) {
+                    ArrayDeque<View> queue = ready.get(layoutId);
+                    if (queue == null) {
+                        queue = new ArrayDeque<>();
+                        ready.put(layoutId, queue);
+                    }
+                    queue.add(view);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,158 @@
+package com.nightwithfireworks.wishlist;
+
+import com.nightwithfireworks.wishlist.core.NameSearchIndex;
+import com.nightwithfireworks.wishlist.core.PortfolioTotals;
+import com.nightwithfireworks.wishlist.core.SortedWishIndex;
+import com.nightwithfireworks.wishlist.core.Wish;
+import com.nightwithfireworks.wishlist.core.WishSort;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// the loaded rows of one named list with their lookup, sort, search and total indexes; only touched on the main thread
+class ListShard {
+
+    final long listId;
+
+    private List<Wish> wishes = Collections.emptyList();
+    private final Map<Long, Integer> indexById = new HashMap<>();
+    private final Map<WishSort, SortedWishIndex> sortIndexes = new EnumMap<>(WishSort.class);
+    private final PortfolioTotals totals = new PortfolioTotals();
+    private final NameSearchIndex searchIndex = new NameSearchIndex();
+    boolean loadStarted = false;
+    boolean reachedEnd = false;
+
+    ListShard(long listId) {
+        this.listId = listId;
+        for (WishSort sort : WishSort.values()) {
+            if (sort != WishSort.ADDED) {
+                sortIndexes.put(sort, new SortedWishIndex(sort));
+            }
+        }
+    }
+
+    List<Wish> getWishes() {
+        return wishes;
+    }
+
+    PortfolioTotals getTotals() {
+        return totals;
+    }
+
+    Wish find(long id) {
+        Integer index = indexById.get(id);
+        return index == null ? null : wishes.get(index);
+    }
+
+    // maxRemainingSatang < 0 means no budget filter; the filter skips wishes that are already complete
+    List<Wish> query(WishSort sort, long maxRemainingSatang) {
+        if (maxRemainingSatang < 0) {
+            return sort == WishSort.ADDED ? wishes : sortIndexes.get(sort).list();
+        }
+
+        List<Wish> matches = sortIndexes.get(WishSort.REMAINING).range(1, maxRemainingSatang);
+        if (sort != WishSort.REMAINING) {
+            matches.sort(sort.comparator());
+        }
+        return matches;
+    }
+
+    // wishes whose name contains query, sorted; maxRemainingSatang as in query()
+    List<Wish> search(String query, WishSort sort, long maxRemainingSatang) {
+        long[] ids = searchIndex.search(query);
+        List<Wish> matches = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Wish wish = find(id);
+            if (maxRemainingSatang < 0
+                    || (wish.getRemainingSatang() > 0 && wish.getRemainingSatang() <= maxRemainingSatang)) {
+                matches.add(wish);
+            }
+        }
+        if (sort != WishSort.ADDED) {
+            matches.sort(sort.comparator());
+        }
+        return matches;
+    }
+
+    boolean append(List<Wish> batch) {
+        if (batch.isEmpty()) {
+            return false;
+        }
+        List<Wish> updated = new ArrayList<>(wishes.size() + batch.size());
+        updated.addAll(wishes);
+        for (Wish wish : batch) {
+            if (indexById.containsKey(wish.getId())) {
+                continue;
+            }
+            indexById.put(wish.getId(), updated.size());
+            updated.add(wish);
+            for (SortedWishIndex sortIndex : sortIndexes.values()) {
+                sortIndex.add(wish);
+            }
+            totals.add(wish);
+            searchIndex.add(wish.getId(), wish.getName());
+        }
+        wishes = Collections.unmodifiableList(updated);
+        return true;
+    }
+
+    boolean replace(Wish before, Wish after) {
+        Integer index = indexById.get(before.getId());
+        if (index == null) {
+            return false;
+        }
+        List<Wish> updated = new ArrayList<>(wishes);
+        updated.set(index, after);
+        for (SortedWishIndex sortIndex : sortIndexes.values()) {
+            sortIndex.replace(before, after);
+        }
+        totals.replace(before, after);
+        wishes = Collections.unmodifiableList(updated);
+        return true;
+    }
+
+    // several wishes in one copy of the list, for changes that must show up together
+    boolean replaceAll(List<Wish> before, List<Wish> after) {
+        List<Wish> updated = new ArrayList<>(wishes);
+        boolean changed = false;
+        for (int i = 0; i < before.size(); i++) {
+            Integer index = indexById.get(before.get(i).getId());
+            if (index == null) {
+                continue;
+            }
+            updated.set(index, after.get(i));
+            for (SortedWishIndex sortIndex : sortIndexes.values()) {
+                sortIndex.replace(before.get(i), after.get(i));
+            }
+            totals.replace(before.get(i), after.get(i));
+            changed = true;
+        }
+        if (changed) {
+            wishes = Collections.unmodifiableList(updated);
+        }
+        return changed;
+    }
+
+    boolean remove(long id) {
+        Integer index = indexById.remove(id);
+        if (index == null) {
+            return false;
+        }
+        List<Wish> updated = new ArrayList<>(wishes);
+        Wish removed = updated.remove((int) index);
+        for (SortedWishIndex sortIndex : sortIndexes.values()) {
+            sortIndex.remove(removed);
+        }
+        totals.remove(removed);
+        searchIndex.remove(removed.getId());
+        for (int i = index; i < updated.size(); i++) {
+            indexById.put(updated.get(i).getId(), i);
+        }
+        wishes = Collections.unmodifiableList(updated);
+        return true;
+    }
+}
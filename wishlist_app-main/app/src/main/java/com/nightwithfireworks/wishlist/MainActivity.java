@@ -4,12 +4,19 @@ import android.app.Activity;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
-import android.view.LayoutInflater;
+import android.text.Editable;
+import android.text.InputType;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.view.Menu;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
+import android.widget.ProgressBar;
+import android.widget.RadioButton;
+import android.widget.RadioGroup;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -19,57 +26,582 @@ import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
-import com.google.android.material.card.MaterialCardView;
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-public class MainActivity extends AppCompatActivity {
-
-    private LinearLayout containerList;
-    private MaterialCardView cardAdd;
-    private static final String PREF_NAME = "wishlist_prefs";
-    private static final String KEY_WISHLIST = "wishlist_data";
-    private boolean isLoading = false;
+import androidx.recyclerview.widget.ConcatAdapter;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.material.bottomnavigation.BottomNavigationView;
+import com.nightwithfireworks.wishlist.core.DepositAllocator;
+import com.nightwithfireworks.wishlist.core.Financials;
+import com.nightwithfireworks.wishlist.core.Money;
+import com.nightwithfireworks.wishlist.core.NamedList;
+import com.nightwithfireworks.wishlist.core.PortfolioTotals;
+import com.nightwithfireworks.wishlist.core.Wish;
+import com.nightwithfireworks.wishlist.core.WishSort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+public class MainActivity extends AppCompatActivity
+        implements WishRepository.Listener, ForecastEngine.Listener {
+
+    // the bottom bar holds five items at most: four lists and the "my lists" item
+    private static final int MAX_NAV_LISTS = 4;
+    // about one screen of cards beyond what the first layout creates
+    private static final int CARD_POOL_SIZE = 4;
+
+    private RecyclerView containerList;
+    private BottomNavigationView bottomNavigation;
+    private TextView tvTotalTarget, tvTotalSaved, tvTotalRemaining, tvTotalCompleted;
+    private WishAdapter wishAdapter;
+    private ImageLoader imageLoader;
+    private LayoutPrefetcher layoutPrefetcher;
+    private WishRepository repository;
+    private WishSort sortMode = WishSort.ADDED;
+    private long budgetSatang = -1;
+    private String searchQuery = "";
 
     private Uri tempImageUri = null;
+    private CompletableFuture<String> pendingImport = null;
     private ImageView dialogImageView;
 
     private ActivityResultLauncher<Intent> imagePickerLauncher;
     private ActivityResultLauncher<Intent> detailActivityLauncher;
+    private ActivityResultLauncher<Intent> importLauncher;
+    private ActivityResultLauncher<Intent> exportLauncher;
+    private ActivityResultLauncher<Intent> backupLauncher;
+    private ActivityResultLauncher<Intent> restoreLauncher;
+    private WishTransfer.Format exportFormat = WishTransfer.Format.JSON;
 
     private long pressedTime = 0;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_main);
+        try (PerfMetrics.Section ignored = PerfMetrics.section("MainActivity.onCreate")) {
+            super.onCreate(savedInstanceState);
+            setContentView(R.layout.activity_main);
+
+            containerList = findViewById(R.id.containerList);
+            tvTotalTarget = findViewById(R.id.tvTotalTarget);
+            tvTotalSaved = findViewById(R.id.tvTotalSaved);
+            tvTotalRemaining = findViewById(R.id.tvTotalRemaining);
+            tvTotalCompleted = findViewById(R.id.tvTotalCompleted);
+            findViewById(R.id.btnSort).setOnClickListener(v -> showSortDialog());
+            findViewById(R.id.btnTransfer).setOnClickListener(v -> showTransferDialog());
+            findViewById(R.id.btnBulkDeposit).setOnClickListener(v -> showBulkDepositDialog());
+            EditText etSearch = findViewById(R.id.etSearch);
+            etSearch.addTextChangedListener(new TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                }
 
-        containerList = findViewById(R.id.containerList);
-        cardAdd = findViewById(R.id.cardAdd);
+                @Override
+                public void onTextChanged(CharSequence s, int start, int before, int count) {
+                }
 
-        setupImagePicker();
-        setupDetailActivityLauncher();
-        loadWishlistFromPrefs();
+                @Override
+                public void afterTextChanged(Editable s) {
+                    searchQuery = s.toString();
+                    onWishesChanged(repository.getWishes());
+                }
+            });
+            bottomNavigation = findViewById(R.id.bottomNavigation);
+            bottomNavigation.setOnItemSelectedListener(item -> {
+                if (item.getItemId() == R.id.menu_lists) {
+                    showListsDialog();
+                    return false;
+                }
+                repository.switchTo(item.getItemId());
+                return true;
+            });
+            if (BuildConfig.DEBUG) {
+                findViewById(R.id.tvAppTitle).setOnLongClickListener(v -> {
+                    showMetricsDialog();
+                    return true;
+                });
+            }
 
-        cardAdd.setOnClickListener(v -> showAddDialog());
+            if (savedInstanceState != null) {
+                sortMode = WishSort.valueOf(savedInstanceState.getString("sortMode", WishSort.ADDED.name()));
+                budgetSatang = savedInstanceState.getLong("budgetSatang", -1);
+            }
+            imageLoader = ImageLoader.getInstance(this);
+            layoutPrefetcher = new LayoutPrefetcher(this);
+            repository = WishRepository.getInstance(this);
+
+            setupWishList();
+            imageLoader.load(findViewById(R.id.imgTree), ImageLoader.resourceUri(this, R.drawable.tree_1), 0);
+            layoutPrefetcher.keep(R.layout.item_card, containerList, CARD_POOL_SIZE);
+            layoutPrefetcher.keep(R.layout.dialog_add_wish, null, 1);
+            setupImagePicker();
+            setupDetailActivityLauncher();
+            setupTransferLaunchers();
+
+            repository.addListener(this);
+            repository.getForecasts().addListener(this);
+            repository.load();
+
+            getOnBackPressedDispatcher().addCallback(this, new OnBackPressedCallback(true) {
+                @Override
+                public void handleOnBackPressed() {
+                    if (pressedTime + 2000 > System.currentTimeMillis()) {
+                        finish();
+                    } else {
+                        Toast.makeText(MainActivity.this, getString(R.string.press_back_again), Toast.LENGTH_SHORT).show();
+                        pressedTime = System.currentTimeMillis();
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        repository.removeListener(this);
+        repository.getForecasts().removeListener(this);
+        layoutPrefetcher.quit();
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString("sortMode", sortMode.name());
+        outState.putLong("budgetSatang", budgetSatang);
+    }
+
+    @Override
+    public void onWishesChanged(List<Wish> wishes) {
+        wishAdapter.submitList(repository.search(searchQuery, sortMode, budgetSatang));
+        bindTotals(repository.getTotals());
+    }
 
-        getOnBackPressedDispatcher().addCallback(this, new OnBackPressedCallback(true) {
+    @Override
+    public void onForecastsChanged() {
+        wishAdapter.notifyItemRangeChanged(0, wishAdapter.getItemCount(), WishAdapter.PAYLOAD_FORECAST);
+    }
+
+    private void bindTotals(PortfolioTotals totals) {
+        tvTotalTarget.setText("฿" + Money.format(totals.getTargetSatang()));
+        tvTotalSaved.setText("฿" + Money.format(totals.getSavedSatang()));
+        tvTotalRemaining.setText("฿" + Money.format(totals.getRemainingSatang()));
+        tvTotalCompleted.setText(totals.getCompletedCount() + "/" + totals.getCount());
+    }
+
+    @Override
+    public void onFullyLoaded() {
+        reportFullyDrawn();
+    }
+
+    @Override
+    public void onListsChanged(List<NamedList> lists, long activeListId) {
+        Menu menu = bottomNavigation.getMenu();
+        menu.removeGroup(R.id.group_lists);
+        int shown = Math.min(lists.size(), MAX_NAV_LISTS);
+        for (int i = 0; i < shown; i++) {
+            NamedList list = lists.get(i);
+            menu.add(R.id.group_lists, (int) list.getId(), i, list.getName())
+                    .setIcon(android.R.drawable.ic_menu_agenda);
+        }
+        if (menu.findItem((int) activeListId) != null) {
+            menu.findItem((int) activeListId).setChecked(true);
+        } else {
+            menu.findItem(R.id.menu_lists).setChecked(true);
+        }
+    }
+
+    private void showListsDialog() {
+        List<NamedList> lists = repository.getLists();
+        String[] labels = new String[lists.size() + 1];
+        int checked = -1;
+        for (int i = 0; i < lists.size(); i++) {
+            labels[i] = lists.get(i).getName();
+            if (lists.get(i).getId() == repository.getActiveListId()) {
+                checked = i;
+            }
+        }
+        labels[lists.size()] = getString(R.string.new_list);
+
+        new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.lists_title))
+                .setSingleChoiceItems(labels, checked, (dialog, which) -> {
+                    dialog.dismiss();
+                    if (which == lists.size()) {
+                        showNewListDialog();
+                    } else {
+                        repository.switchTo(lists.get(which).getId());
+                    }
+                })
+                .setNegativeButton(getString(R.string.btn_cancel), null)
+                .show();
+    }
+
+    private void showNewListDialog() {
+        final EditText input = new EditText(this);
+        input.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_SENTENCES);
+        input.setHint(getString(R.string.hint_list_name));
+
+        new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.new_list))
+                .setView(input)
+                .setPositiveButton(getString(R.string.btn_create), (dialog, which) -> {
+                    String name = input.getText().toString().trim();
+                    if (!name.isEmpty()) {
+                        repository.createList(name);
+                    }
+                })
+                .setNegativeButton(getString(R.string.btn_cancel), null)
+                .show();
+    }
+
+    private void setupWishList() {
+        wishAdapter = new WishAdapter(layoutPrefetcher, imageLoader, repository.getForecasts(), this::openDetail);
+        AddCardAdapter addCardAdapter = new AddCardAdapter(v -> showAddDialog());
+
+        ConcatAdapter.Config config = new ConcatAdapter.Config.Builder()
+                .setIsolateViewTypes(true)
+                .setStableIdMode(ConcatAdapter.Config.StableIdMode.ISOLATED_STABLE_IDS)
+                .build();
+
+        containerList.setLayoutManager(new LinearLayoutManager(this, RecyclerView.HORIZONTAL, false));
+        containerList.setHasFixedSize(true);
+        containerList.setAdapter(new ConcatAdapter(config, wishAdapter, addCardAdapter));
+    }
+
+    private void showSortDialog() {
+        WishSort[] sorts = WishSort.values();
+        String[] labels = {
+                getString(R.string.sort_added),
+                getString(R.string.sort_price),
+                getString(R.string.sort_remaining),
+                getString(R.string.sort_progress)
+        };
+
+        new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.sort_title))
+                .setSingleChoiceItems(labels, sortMode.ordinal(), (dialog, which) -> {
+                    sortMode = sorts[which];
+                    onWishesChanged(repository.getWishes());
+                    dialog.dismiss();
+                })
+                .setNeutralButton(getString(R.string.filter_budget), (dialog, which) -> showBudgetDialog())
+                .setNegativeButton(getString(R.string.btn_cancel), null)
+                .show();
+    }
+
+    private void showBudgetDialog() {
+        final EditText input = new EditText(this);
+        input.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
+        input.setHint(getString(R.string.hint_budget));
+        if (budgetSatang >= 0) {
+            input.setText(Money.format(budgetSatang));
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.dialog_budget_title))
+                .setView(input)
+                .setPositiveButton(getString(R.string.btn_apply), (dialog, which) -> {
+                    String text = input.getText().toString();
+                    if (text.isEmpty()) {
+                        budgetSatang = -1;
+                    } else {
+                        try {
+                            budgetSatang = Money.parseSatang(text);
+                        } catch (NumberFormatException e) {
+                            Toast.makeText(this, getString(R.string.error_invalid_amount), Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                    }
+                    onWishesChanged(repository.getWishes());
+                })
+                .setNegativeButton(getString(R.string.btn_clear), (dialog, which) -> {
+                    budgetSatang = -1;
+                    onWishesChanged(repository.getWishes());
+                })
+                .show();
+    }
+
+    // picks from the cards on screen, so search and the budget filter narrow the choice
+    private void showBulkDepositDialog() {
+        List<Wish> open = new ArrayList<>();
+        for (Wish wish : repository.search(searchQuery, sortMode, budgetSatang)) {
+            if (wish.getRemainingSatang() > 0) {
+                open.add(wish);
+            }
+        }
+        if (open.isEmpty()) {
+            Toast.makeText(this, getString(R.string.bulk_nothing_open), Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        String[] labels = new String[open.size()];
+        boolean[] checked = new boolean[open.size()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = getString(R.string.bulk_wish_label,
+                    open.get(i).getName(), Money.formatFixed(open.get(i).getRemainingSatang()));
+            checked[i] = true;
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.bulk_choose_title))
+                .setMultiChoiceItems(labels, checked, (dialog, which, isChecked) -> checked[which] = isChecked)
+                .setPositiveButton(getString(R.string.btn_next), (dialog, which) -> {
+                    List<Wish> chosen = new ArrayList<>();
+                    for (int i = 0; i < checked.length; i++) {
+                        if (checked[i]) {
+                            chosen.add(open.get(i));
+                        }
+                    }
+                    if (chosen.isEmpty()) {
+                        Toast.makeText(this, getString(R.string.bulk_none_chosen), Toast.LENGTH_SHORT).show();
+                    } else {
+                        showBulkAmountDialog(chosen);
+                    }
+                })
+                .setNegativeButton(getString(R.string.btn_cancel), null)
+                .show();
+    }
+
+    private void showBulkAmountDialog(List<Wish> chosen) {
+        DepositAllocator.Strategy[] strategies = DepositAllocator.Strategy.values();
+        String[] strategyLabels = {
+                getString(R.string.bulk_split_equal),
+                getString(R.string.bulk_split_proportional),
+                getString(R.string.bulk_split_cheapest)
+        };
+
+        int padding = (int) (24 * getResources().getDisplayMetrics().density);
+        LinearLayout content = new LinearLayout(this);
+        content.setOrientation(LinearLayout.VERTICAL);
+        content.setPadding(padding, padding / 2, padding, 0);
+
+        final EditText input = new EditText(this);
+        input.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
+        input.setHint(getString(R.string.hint_amount));
+        content.addView(input);
+
+        RadioGroup group = new RadioGroup(this);
+        RadioButton[] buttons = new RadioButton[strategies.length];
+        for (int i = 0; i < strategies.length; i++) {
+            buttons[i] = new RadioButton(this);
+            buttons[i].setId(View.generateViewId());
+            buttons[i].setText(strategyLabels[i]);
+            group.addView(buttons[i]);
+        }
+        group.check(buttons[0].getId());
+        content.addView(group);
+
+        long[] wishIds = new long[chosen.size()];
+        long remainingSatang = 0;
+        for (int i = 0; i < wishIds.length; i++) {
+            wishIds[i] = chosen.get(i).getId();
+            remainingSatang += chosen.get(i).getRemainingSatang();
+        }
+        final long chosenRemaining = remainingSatang;
+
+        new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.bulk_deposit_title, chosen.size()))
+                .setView(content)
+                .setPositiveButton(getString(R.string.btn_confirm_deposit), (dialog, which) -> {
+                    long deposit;
+                    try {
+                        deposit = Money.parseSatang(input.getText().toString());
+                    } catch (NumberFormatException e) {
+                        Toast.makeText(this, getString(R.string.error_invalid_amount), Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    // the same check as a single deposit, against what the chosen wishes still need together
+                    Financials.DepositCheck check = Financials.checkDeposit(chosenRemaining, 0, deposit);
+                    if (check == Financials.DepositCheck.INVALID_AMOUNT) {
+                        Toast.makeText(this, getString(R.string.error_invalid_amount), Toast.LENGTH_SHORT).show();
+                        return;
+                    } else if (check == Financials.DepositCheck.EXCEEDS_REMAINING) {
+                        String msg = getString(R.string.error_amount_exceed) + " ฿" + Money.formatFixed(chosenRemaining);
+                        Toast.makeText(this, msg, Toast.LENGTH_LONG).show();
+                        return;
+                    }
+
+                    DepositAllocator.Strategy strategy = DepositAllocator.Strategy.EQUAL;
+                    for (int i = 0; i < buttons.length; i++) {
+                        if (buttons[i].getId() == group.getCheckedRadioButtonId()) {
+                            strategy = strategies[i];
+                        }
+                    }
+                    long[] shares = repository.addDeposits(wishIds, deposit, strategy);
+                    int watered = 0;
+                    for (long share : shares) {
+                        if (share > 0) {
+                            watered++;
+                        }
+                    }
+                    Toast.makeText(this, getString(R.string.bulk_done,
+                            Money.formatFixed(DepositAllocator.sum(shares)), watered), Toast.LENGTH_SHORT).show();
+                })
+                .setNegativeButton(getString(R.string.btn_cancel), null)
+                .show();
+    }
+
+    private void showTransferDialog() {
+        String[] items = {
+                getString(R.string.import_file),
+                getString(R.string.export_json),
+                getString(R.string.export_csv),
+                getString(R.string.backup_to_folder),
+                getString(R.string.restore_from_folder)
+        };
+
+        new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.transfer_title))
+                .setItems(items, (dialog, which) -> {
+                    if (which == 3) {
+                        backupLauncher.launch(new Intent(Intent.ACTION_OPEN_DOCUMENT_TREE));
+                    } else if (which == 4) {
+                        showRestoreConfirmDialog();
+                    } else if (which == 0) {
+                        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+                        intent.addCategory(Intent.CATEGORY_OPENABLE);
+                        intent.setType("*/*");
+                        intent.putExtra(Intent.EXTRA_MIME_TYPES, new String[]{
+                                "application/json", "text/csv", "text/comma-separated-values", "text/plain"});
+                        importLauncher.launch(intent);
+                    } else {
+                        exportFormat = which == 1 ? WishTransfer.Format.JSON : WishTransfer.Format.CSV;
+                        Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+                        intent.addCategory(Intent.CATEGORY_OPENABLE);
+                        intent.setType(exportFormat.mimeType);
+                        intent.putExtra(Intent.EXTRA_TITLE,
+                                exportFormat == WishTransfer.Format.JSON ? "wishlist.json" : "wishlist.csv");
+                        exportLauncher.launch(intent);
+                    }
+                })
+                .show();
+    }
+
+    // a restore replaces every list on this phone, so it asks before the folder picker opens
+    private void showRestoreConfirmDialog() {
+        new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.restore_confirm_title))
+                .setMessage(getString(R.string.restore_confirm_msg))
+                .setPositiveButton(getString(R.string.btn_restore),
+                        (dialog, which) -> restoreLauncher.launch(new Intent(Intent.ACTION_OPEN_DOCUMENT_TREE)))
+                .setNegativeButton(getString(R.string.btn_cancel), null)
+                .show();
+    }
+
+    private void setupTransferLaunchers() {
+        importLauncher = registerForActivityResult(
+                new ActivityResultContracts.StartActivityForResult(),
+                result -> {
+                    if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null
+                            && result.getData().getData() != null) {
+                        Uri source = result.getData().getData();
+                        runTransfer(getString(R.string.transfer_importing), R.string.import_done,
+                                callback -> new WishTransfer(this).importFrom(source, callback));
+                    }
+                }
+        );
+        exportLauncher = registerForActivityResult(
+                new ActivityResultContracts.StartActivityForResult(),
+                result -> {
+                    if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null
+                            && result.getData().getData() != null) {
+                        Uri target = result.getData().getData();
+                        WishTransfer.Format format = exportFormat;
+                        runTransfer(getString(R.string.transfer_exporting), R.string.export_done,
+                                callback -> new WishTransfer(this).exportTo(target, format, callback));
+                    }
+                }
+        );
+        backupLauncher = registerForActivityResult(
+                new ActivityResultContracts.StartActivityForResult(),
+                result -> {
+                    if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null
+                            && result.getData().getData() != null) {
+                        Uri tree = result.getData().getData();
+                        runTransfer(getString(R.string.backup_running), R.string.backup_done,
+                                callback -> new WishBackup(this).backupTo(tree, callback));
+                    }
+                }
+        );
+        restoreLauncher = registerForActivityResult(
+                new ActivityResultContracts.StartActivityForResult(),
+                result -> {
+                    if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null
+                            && result.getData().getData() != null) {
+                        Uri tree = result.getData().getData();
+                        runTransfer(getString(R.string.restore_running), R.string.restore_done,
+                                callback -> new WishBackup(this).restoreFrom(tree, callback));
+                    }
+                }
+        );
+    }
+
+    private void runTransfer(String title, int doneMessage,
+                             Function<WishTransfer.Callback, WishTransfer.Task> start) {
+        ProgressBar progressBar = new ProgressBar(this, null, android.R.attr.progressBarStyleHorizontal);
+        progressBar.setIndeterminate(true);
+        progressBar.setMax(100);
+        int padding = (int) (24 * getResources().getDisplayMetrics().density);
+        progressBar.setPadding(padding, padding, padding, padding);
+
+        AlertDialog dialog = new AlertDialog.Builder(this)
+                .setTitle(title)
+                .setView(progressBar)
+                .setCancelable(false)
+                .setNegativeButton(getString(R.string.btn_cancel), null)
+                .create();
+
+        WishTransfer.Task task = start.apply(new WishTransfer.Callback() {
             @Override
-            public void handleOnBackPressed() {
-                if (pressedTime + 2000 > System.currentTimeMillis()) {
-                    finish();
-                } else {
-                    Toast.makeText(MainActivity.this, getString(R.string.press_back_again), Toast.LENGTH_SHORT).show();
-                    pressedTime = System.currentTimeMillis();
+            public void onProgress(int percent) {
+                if (percent >= 0) {
+                    progressBar.setIndeterminate(false);
+                    progressBar.setProgress(percent);
                 }
             }
+
+            @Override
+            public void onFinished(int count, boolean cancelled) {
+                dialog.dismiss();
+                String message = cancelled
+                        ? getString(R.string.transfer_cancelled, count)
+                        : getString(doneMessage, count);
+                Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                dialog.dismiss();
+                Toast.makeText(MainActivity.this, getString(R.string.transfer_failed), Toast.LENGTH_SHORT).show();
+            }
         });
+
+        dialog.setOnShowListener(d -> dialog.getButton(AlertDialog.BUTTON_NEGATIVE)
+                .setOnClickListener(v -> task.cancel()));
+        dialog.show();
     }
 
-    @Override
-    protected void onPause() {
-        super.onPause();
-        saveWishlistToPrefs();
+    // the database size is read from disk on the database thread, so the dialog opens once it is back
+    private void showMetricsDialog() {
+        CardLayoutProbe.run(containerList);
+        PerfMetrics.setGauge("image.cache_hit_percent", imageLoader.getCacheHitPercent());
+        MemoryBudget.getInstance(this).publishGauges();
+        repository.measureStoreSize(bytes -> {
+            if (isFinishing() || isDestroyed()) {
+                return;
+            }
+            PerfMetrics.setGauge("store.payload_bytes", bytes);
+            String report = PerfMetrics.report();
+            Log.i("PerfMetrics", report);
+
+            new AlertDialog.Builder(this)
+                    .setTitle("Metrics")
+                    .setMessage(report)
+                    .setPositiveButton(getString(R.string.btn_close), null)
+                    .show();
+        });
     }
 
     private void setupDetailActivityLauncher() {
@@ -82,25 +614,12 @@ public class MainActivity extends AppCompatActivity {
     private void handleDetailResult(ActivityResult result) {
         if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null) {
             Intent data = result.getData();
-            int index = data.getIntExtra("itemIndex", -1);
-
-            if (index == -1 || index >= containerList.getChildCount() - 1) {
-                return;
-            }
 
-            View card = containerList.getChildAt(index);
-            boolean isDeleted = data.getBooleanExtra("isDeleted", false);
-
-            if (isDeleted) {
-                containerList.removeView(card);
+            if (data.getBooleanExtra("isDeleted", false)) {
                 Toast.makeText(this, getString(R.string.item_deleted), Toast.LENGTH_SHORT).show();
-            } else {
-                double newSavedAmount = data.getDoubleExtra("savedAmount", 0.0);
-                card.setTag(newSavedAmount);
+            } else if (data.getBooleanExtra("isUpdated", false)) {
                 Toast.makeText(this, getString(R.string.progress_saved), Toast.LENGTH_SHORT).show();
             }
-
-            saveWishlistToPrefs();
         }
     }
 
@@ -111,17 +630,12 @@ public class MainActivity extends AppCompatActivity {
                     if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null) {
                         tempImageUri = result.getData().getData();
                         if (tempImageUri != null) {
-                            try {
-                                getContentResolver().takePersistableUriPermission(
-                                        tempImageUri,
-                                        Intent.FLAG_GRANT_READ_URI_PERMISSION
-                                );
-                            } catch (SecurityException e) {
-                                e.printStackTrace();
-                            }
+                            releasePendingImport();
+                            pendingImport = ImageImporter.getInstance(this).importImage(tempImageUri);
                         }
-                        if (dialogImageView != null) {
-                            dialogImageView.setImageURI(tempImageUri);
+                        if (dialogImageView != null && tempImageUri != null) {
+                            imageLoader.load(dialogImageView, tempImageUri.toString(),
+                                    android.R.drawable.ic_menu_camera);
                         }
                     }
                 }
@@ -130,11 +644,12 @@ public class MainActivity extends AppCompatActivity {
 
     private void showAddDialog() {
         tempImageUri = null;
+        pendingImport = null;
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
-        LayoutInflater inflater = getLayoutInflater();
-        View dialogView = inflater.inflate(R.layout.dialog_add_wish, null);
+        View dialogView = layoutPrefetcher.obtain(R.layout.dialog_add_wish, null);
         builder.setView(dialogView);
         AlertDialog dialog = builder.create();
+        dialog.setOnCancelListener(d -> releasePendingImport());
 
         dialogImageView = dialogView.findViewById(R.id.imgPreview);
         TextView btnSelectImage = dialogView.findViewById(R.id.btnSelectImage);
@@ -146,142 +661,69 @@ public class MainActivity extends AppCompatActivity {
             Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
             intent.addCategory(Intent.CATEGORY_OPENABLE);
             intent.setType("image/*");
-            intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION
-                    | Intent.FLAG_GRANT_PERSISTABLE_URI_PERMISSION);
+            intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
             imagePickerLauncher.launch(intent);
         });
 
         btnAdd.setOnClickListener(v -> {
             String name = etName.getText().toString();
-            String price = etPrice.getText().toString();
+            String priceText = etPrice.getText().toString();
 
-            if (name.isEmpty() || price.isEmpty()) {
+            if (name.isEmpty() || priceText.isEmpty()) {
                 Toast.makeText(MainActivity.this, getString(R.string.please_fill), Toast.LENGTH_SHORT).show();
                 return;
             }
 
-            createNewCard(name, price, tempImageUri, 0.0);
-            dialog.dismiss();
-        });
-
-        dialog.show();
-    }
-
-    private void createNewCard(String name, String price, Uri imageUri, double savedAmount) {
-        LayoutInflater inflater = LayoutInflater.from(this);
-        View newCard = inflater.inflate(R.layout.item_card, containerList, false);
-
-        TextView tvName = newCard.findViewById(R.id.tvItemName);
-        TextView tvPrice = newCard.findViewById(R.id.tvItemPrice);
-        ImageView imgItem = newCard.findViewById(R.id.imgItem);
-
-        tvName.setText(name);
-        tvPrice.setText("฿" + price);
-
-        if (imageUri != null) {
-            imgItem.setImageURI(imageUri);
-            imgItem.setTag(imageUri.toString());
-        } else {
-            imgItem.setImageResource(android.R.drawable.ic_menu_gallery);
-            imgItem.setTag("");
-        }
-
-        newCard.setTag(savedAmount);
-
-        newCard.setOnClickListener(v -> {
-            Intent intent = new Intent(MainActivity.this, DetailActivity.class);
-            int index = containerList.indexOfChild(newCard);
-
-            intent.putExtra("itemIndex", index);
-            intent.putExtra("name", name);
+            long price;
             try {
-                String priceStr = tvPrice.getText().toString().replace("฿", "");
-                intent.putExtra("price", Double.parseDouble(priceStr));
+                price = Money.parseSatang(priceText);
             } catch (NumberFormatException e) {
-                try {
-                    intent.putExtra("price", Double.parseDouble(price));
-                } catch (NumberFormatException ex) {
-                    intent.putExtra("price", 0.0);
-                }
+                Toast.makeText(MainActivity.this, getString(R.string.error_invalid_amount), Toast.LENGTH_SHORT).show();
+                return;
             }
-            intent.putExtra("savedAmount", (Double) newCard.getTag());
 
-            if (imageUri != null)
-                intent.putExtra("imageUri", imageUri.toString());
-
-            detailActivityLauncher.launch(intent);
+            createNewCard(name, price, pendingImport);
+            dialog.dismiss();
         });
 
-        int index = containerList.indexOfChild(cardAdd);
-        containerList.addView(newCard, index);
+        dialog.show();
+    }
 
-        if (!isLoading) {
-            saveWishlistToPrefs();
+    // the wish is stored once the picked image has been copied in, which usually finished while the user typed.
+    // it goes into the list that was open when the user confirmed, and is kept without its picture if the copy failed
+    private void createNewCard(String name, long price, CompletableFuture<String> imageImport) {
+        long listId = repository.getActiveListId();
+        if (imageImport == null) {
+            repository.add(listId, name, price, "");
             Toast.makeText(this, getString(R.string.wish_added), Toast.LENGTH_SHORT).show();
+            return;
         }
-    }
-
-    private void saveWishlistToPrefs() {
-        try {
-            JSONArray jsonArray = new JSONArray();
-            for (int i = 0; i < containerList.getChildCount(); i++) {
-                View card = containerList.getChildAt(i);
-                if (card.getId() == R.id.cardAdd) continue;
-
-                TextView tvName = card.findViewById(R.id.tvItemName);
-                TextView tvPrice = card.findViewById(R.id.tvItemPrice);
-                ImageView imgItem = card.findViewById(R.id.imgItem);
 
-                double savedAmount = (card.getTag() == null) ? 0.0 : (Double) card.getTag();
-
-                JSONObject obj = new JSONObject();
-                obj.put("name", tvName.getText().toString());
-                obj.put("price", tvPrice.getText().toString().replace("฿", ""));
-                obj.put("imageUri", imgItem.getTag() == null ? "" : imgItem.getTag().toString());
-                obj.put("savedAmount", savedAmount);
-
-                jsonArray.put(obj);
+        ImageImporter importer = ImageImporter.getInstance(this);
+        imageImport.whenCompleteAsync((imageUri, error) -> {
+            if (error != null) {
+                error.printStackTrace();
             }
+            boolean hasImage = error == null && imageUri != null && !imageUri.isEmpty();
+            repository.add(listId, name, price, hasImage ? imageUri : "");
+            if (hasImage) {
+                importer.release(imageUri);
+            }
+            Toast.makeText(this, getString(hasImage ? R.string.wish_added : R.string.wish_added_without_image),
+                    Toast.LENGTH_SHORT).show();
+        }, getMainExecutor());
+    }
 
-            String jsonString = jsonArray.toString();
-            getSharedPreferences(PREF_NAME, MODE_PRIVATE)
-                    .edit()
-                    .putString(KEY_WISHLIST, jsonString)
-                    .apply();
-
-        } catch (Exception e) {
-            e.printStackTrace();
+    private void releasePendingImport() {
+        if (pendingImport != null) {
+            pendingImport.thenAccept(ImageImporter.getInstance(this)::release);
+            pendingImport = null;
         }
     }
 
-    private void loadWishlistFromPrefs() {
-        isLoading = true;
-        String json = getSharedPreferences(PREF_NAME, MODE_PRIVATE)
-                .getString(KEY_WISHLIST, null);
-
-        if (json != null) {
-            try {
-                JSONArray jsonArray = new JSONArray(json);
-                for (int i = 0; i < jsonArray.length(); i++) {
-                    try {
-                        JSONObject obj = jsonArray.getJSONObject(i);
-                        String name = obj.getString("name");
-                        String price = obj.getString("price");
-                        String imageUri = obj.getString("imageUri");
-
-                        double savedAmount = obj.optDouble("savedAmount", 0.0);
-
-                        Uri imgUri = imageUri.isEmpty() ? null : Uri.parse(imageUri);
-                        createNewCard(name, price, imgUri, savedAmount);
-
-                    } catch (Exception e_inner) {
-                        e_inner.printStackTrace();
-                    }
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-        isLoading = false;
+    private void openDetail(Wish wish) {
+        Intent intent = new Intent(MainActivity.this, DetailActivity.class);
+        intent.putExtra("wishId", wish.getId());
+        detailActivityLauncher.launch(intent);
     }
-}
\ No newline at end of file
+}
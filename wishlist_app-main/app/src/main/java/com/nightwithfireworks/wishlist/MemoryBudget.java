@@ -0,0 +1,95 @@
+package com.nightwithfireworks.wishlist;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// sizes the in-memory caches from the device's memory class and shrinks them as the system reports pressure
+public class MemoryBudget {
+
+    public interface Trimmable {
+        long getUsedBytes();
+
+        // 0 clears everything, 1 keeps the full budget
+        void trim(float keepFraction);
+    }
+
+    private static final String TAG = "MemoryBudget";
+
+    private static MemoryBudget instance;
+
+    private final int memoryClassMb;
+    private final boolean lowRam;
+    // trimmed in registration order, so a cache that feeds a pool should register before the pool
+    private final Map<String, Trimmable> trimmables = new LinkedHashMap<>();
+
+    public static synchronized MemoryBudget getInstance(Context context) {
+        if (instance == null) {
+            instance = new MemoryBudget(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private MemoryBudget(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        memoryClassMb = activityManager.getMemoryClass();
+        lowRam = activityManager.isLowRamDevice();
+    }
+
+    // an eighth of the per-app heap, a sixteenth on low-RAM devices
+    public long getImageCacheBytes() {
+        return (long) memoryClassMb * 1024 * 1024 / (lowRam ? 16 : 8);
+    }
+
+    // bitmaps kept for reuse are a quarter of the image cache on top of it
+    public long getBitmapPoolBytes() {
+        return getImageCacheBytes() / 4;
+    }
+
+    public synchronized void register(String name, Trimmable trimmable) {
+        trimmables.put(name, trimmable);
+    }
+
+    public synchronized void onTrimMemory(int level) {
+        float keep;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            keep = 0f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            keep = 0.5f;
+        } else {
+            return;
+        }
+        long before = getUsedBytes();
+        for (Trimmable trimmable : trimmables.values()) {
+            trimmable.trim(keep);
+        }
+        Log.i(TAG, "trim level " + level + ": " + before / 1024 + " KB -> " + getUsedBytes() / 1024 + " KB");
+        publishGauges();
+    }
+
+    public synchronized long getUsedBytes() {
+        long used = 0;
+        for (Trimmable trimmable : trimmables.values()) {
+            used += trimmable.getUsedBytes();
+        }
+        return used;
+    }
+
+    // current usage against the budget, shown in the debug metrics dialog
+    public synchronized void publishGauges() {
+        Runtime runtime = Runtime.getRuntime();
+        PerfMetrics.setGauge("memory.class_mb", memoryClassMb);
+        PerfMetrics.setGauge("memory.low_ram", lowRam ? 1 : 0);
+        PerfMetrics.setGauge("memory.heap_used_kb", (runtime.totalMemory() - runtime.freeMemory()) / 1024);
+        PerfMetrics.setGauge("memory.budget_kb", (getImageCacheBytes() + getBitmapPoolBytes()) / 1024);
+        for (Map.Entry<String, Trimmable> entry : trimmables.entrySet()) {
+            PerfMetrics.setGauge("memory." + entry.getKey() + "_kb", entry.getValue().getUsedBytes() / 1024);
+        }
+    }
+}
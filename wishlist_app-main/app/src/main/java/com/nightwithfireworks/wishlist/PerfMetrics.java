@@ -0,0 +1,110 @@
+package com.nightwithfireworks.wishlist;
+
+import android.os.SystemClock;
+import android.os.Trace;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// systrace sections plus rolling p50/p95 timings and counters for the hot paths
+public final class PerfMetrics {
+
+    private static final int SAMPLE_WINDOW = 256;
+
+    private static final Map<String, Samples> timings = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Long> gauges = new ConcurrentHashMap<>();
+
+    private PerfMetrics() {
+    }
+
+    public static Section section(String name) {
+        return new Section(name);
+    }
+
+    public static void record(String name, long durationNanos) {
+        timings.computeIfAbsent(name, k -> new Samples()).add(durationNanos);
+    }
+
+    public static void increment(String name) {
+        counters.computeIfAbsent(name, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    public static long count(String name) {
+        AtomicLong counter = counters.get(name);
+        return counter == null ? 0 : counter.get();
+    }
+
+    public static void setGauge(String name, long value) {
+        gauges.put(name, value);
+    }
+
+    public static String report() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Samples> entry : new TreeMap<>(timings).entrySet()) {
+            long[] sorted = entry.getValue().snapshot();
+            if (sorted.length == 0) {
+                continue;
+            }
+            out.append(entry.getKey())
+                    .append("  n=").append(sorted.length)
+                    .append("  p50=").append(formatMs(percentile(sorted, 50)))
+                    .append("  p95=").append(formatMs(percentile(sorted, 95)))
+                    .append('\n');
+        }
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(counters).entrySet()) {
+            out.append(entry.getKey()).append(" = ").append(entry.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, Long> entry : new TreeMap<>(gauges).entrySet()) {
+            out.append(entry.getKey()).append(" = ").append(entry.getValue()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static String formatMs(long nanos) {
+        return String.format("%.2fms", nanos / 1_000_000.0);
+    }
+
+    public static final class Section implements AutoCloseable {
+        private final String name;
+        private final long startNanos;
+
+        private Section(String name) {
+            this.name = name;
+            Trace.beginSection(name);
+            startNanos = SystemClock.elapsedRealtimeNanos();
+        }
+
+        @Override
+        public void close() {
+            record(name, SystemClock.elapsedRealtimeNanos() - startNanos);
+            Trace.endSection();
+        }
+    }
+
+    private static final class Samples {
+        private final long[] ring = new long[SAMPLE_WINDOW];
+        private int next = 0;
+        private int size = 0;
+
+        synchronized void add(long value) {
+            ring[next] = value;
+            next = (next + 1) % ring.length;
+            size = Math.min(size + 1, ring.length);
+        }
+
+        synchronized long[] snapshot() {
+            long[] copy = Arrays.copyOf(ring, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.Context;
+
+import com.nightwithfireworks.wishlist.core.PortfolioTotals;
+import com.nightwithfireworks.wishlist.core.Wish;
+import com.nightwithfireworks.wishlist.core.WishSort;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// the open list's first screen of cards and its totals in a small binary file, so launch does not wait for the database.
+// the cards are stored with the order they were taken in; they only stand in for a list shown in that order
+public class StartupSnapshot {
+
+    public static final class Contents {
+        public final long listId;
+        public final WishSort sort;
+        public final List<Wish> wishes;
+        public final PortfolioTotals totals;
+
+        Contents(long listId, WishSort sort, List<Wish> wishes, PortfolioTotals totals) {
+            this.listId = listId;
+            this.sort = sort;
+            this.wishes = wishes;
+            this.totals = totals;
+        }
+    }
+
+    public static final int CARD_COUNT = 10;
+
+    private static final String FILE_NAME = "startup_snapshot.bin";
+    private static final int MAGIC = 0x57534e34;
+    private static final Contents EMPTY = new Contents(WishDatabase.DEFAULT_LIST_ID, WishSort.ADDED,
+            Collections.emptyList(), null);
+
+    private final File file;
+
+    public StartupSnapshot(Context context) {
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    public Contents read() {
+        if (!file.exists()) {
+            return EMPTY;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                return EMPTY;
+            }
+            long listId = in.readLong();
+            WishSort sort = WishSort.valueOf(in.readUTF());
+            PortfolioTotals totals = new PortfolioTotals(
+                    in.readInt(), in.readInt(), in.readLong(), in.readLong(), in.readLong());
+            int count = in.readInt();
+            List<Wish> wishes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                String name = in.readUTF();
+                long priceSatang = in.readLong();
+                String imageUri = in.readUTF();
+                long savedSatang = in.readLong();
+                wishes.add(new Wish(id, name, priceSatang, imageUri, savedSatang));
+            }
+            return new Contents(listId, sort, wishes, totals);
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+            return EMPTY;
+        }
+    }
+
+    public void delete() {
+        file.delete();
+    }
+
+    // wishes in the given order; only the first CARD_COUNT are kept
+    public void write(long listId, WishSort sort, List<Wish> wishes, PortfolioTotals totals) {
+        int count = Math.min(wishes.size(), CARD_COUNT);
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(listId);
+            out.writeUTF(sort.name());
+            out.writeInt(totals.getCount());
+            out.writeInt(totals.getCompletedCount());
+            out.writeLong(totals.getTargetSatang());
+            out.writeLong(totals.getSavedSatang());
+            out.writeLong(totals.getRemainingSatang());
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                Wish wish = wishes.get(i);
+                out.writeLong(wish.getId());
+                out.writeUTF(wish.getName());
+                out.writeLong(wish.getPriceSatang());
+                out.writeUTF(wish.getImageUri() == null ? "" : wish.getImageUri());
+                out.writeLong(wish.getSavedSatang());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.Context;
+import android.text.format.DateUtils;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.nightwithfireworks.wishlist.core.Financials;
+import com.nightwithfireworks.wishlist.core.Money;
+import com.nightwithfireworks.wishlist.core.Wish;
+
+import java.util.List;
+
+public class WishAdapter extends ListAdapter<Wish, WishAdapter.WishViewHolder> {
+
+    public interface OnWishClickListener {
+        void onWishClick(Wish wish);
+    }
+
+    private static final DiffUtil.ItemCallback<Wish> DIFF_CALLBACK = new DiffUtil.ItemCallback<Wish>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Wish oldItem, @NonNull Wish newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Wish oldItem, @NonNull Wish newItem) {
+            return oldItem.sameContentAs(newItem);
+        }
+    };
+
+    public static final Object PAYLOAD_FORECAST = new Object();
+
+    private final LayoutPrefetcher prefetcher;
+    private final ImageLoader imageLoader;
+    private final ForecastEngine forecasts;
+    private final OnWishClickListener listener;
+
+    public WishAdapter(LayoutPrefetcher prefetcher, ImageLoader imageLoader, ForecastEngine forecasts,
+                       OnWishClickListener listener) {
+        super(DIFF_CALLBACK);
+        this.prefetcher = prefetcher;
+        this.imageLoader = imageLoader;
+        this.forecasts = forecasts;
+        this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getId();
+    }
+
+    @NonNull
+    @Override
+    public WishViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        try (PerfMetrics.Section ignored = PerfMetrics.section("WishAdapter.inflateCard")) {
+            View view = prefetcher.obtain(R.layout.item_card, parent);
+            return new WishViewHolder(view);
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull WishViewHolder holder, int position) {
+        try (PerfMetrics.Section ignored = PerfMetrics.section("WishAdapter.bindCard")) {
+            Wish wish = getItem(position);
+
+            holder.tvName.setText(wish.getName());
+            holder.tvPrice.setText("฿" + Money.format(wish.getPriceSatang()));
+            bindForecast(holder, wish);
+
+            imageLoader.load(holder.imgItem, wish.getImageUri(), android.R.drawable.ic_menu_gallery);
+
+            holder.itemView.setOnClickListener(v -> {
+                int pos = holder.getBindingAdapterPosition();
+                if (pos != RecyclerView.NO_POSITION) {
+                    listener.onWishClick(getItem(pos));
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull WishViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.size() == 1 && payloads.get(0) == PAYLOAD_FORECAST) {
+            bindForecast(holder, getItem(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    private void bindForecast(WishViewHolder holder, Wish wish) {
+        long completion = forecasts.get(wish.getId());
+        if (completion < 0 || Financials.isComplete(wish.getPriceSatang(), wish.getSavedSatang())) {
+            holder.tvForecast.setText("");
+            return;
+        }
+        Context context = holder.itemView.getContext();
+        String date = DateUtils.formatDateTime(context, completion,
+                DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_ABBREV_MONTH);
+        holder.tvForecast.setText(context.getString(R.string.forecast_by, date));
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull WishViewHolder holder) {
+        imageLoader.clear(holder.imgItem);
+    }
+
+    static class WishViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvName;
+        final TextView tvPrice;
+        final TextView tvForecast;
+        final ImageView imgItem;
+
+        WishViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvName = itemView.findViewById(R.id.tvItemName);
+            tvPrice = itemView.findViewById(R.id.tvItemPrice);
+            tvForecast = itemView.findViewById(R.id.tvItemForecast);
+            imgItem = itemView.findViewById(R.id.imgItem);
+        }
+    }
+}
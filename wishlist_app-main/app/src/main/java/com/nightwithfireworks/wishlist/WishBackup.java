@@ -0,0 +1,270 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.nightwithfireworks.wishlist.core.BackupManifest;
+import com.nightwithfireworks.wishlist.core.BackupRecords;
+import com.nightwithfireworks.wishlist.core.ChunkReader;
+import com.nightwithfireworks.wishlist.core.ChunkWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// local backups of every list, wish, deposit and imported image to a folder the user picks. Everything is cut
+// into compressed chunks named by their hash (see ChunkWriter), so a backup only writes the chunks the folder
+// does not have yet, and a restore streams them back one chunk at a time. The store is only touched through
+// WishRepository.runExclusive(); everything else runs on this class's own thread
+public class WishBackup {
+
+    // older backups stay restorable in the folder until this many newer ones exist
+    private static final int KEEP_BACKUPS = 5;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ContentResolver resolver;
+    private final WishRepository repository;
+    private final File imageDir;
+    private final File cacheDir;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public WishBackup(Context context) {
+        resolver = context.getContentResolver();
+        repository = WishRepository.getInstance(context);
+        imageDir = new File(context.getFilesDir(), ImageImporter.IMAGE_DIR);
+        cacheDir = context.getCacheDir();
+    }
+
+    // a cancelled backup writes no manifest; the chunks it already stored are picked up by the next one
+    public WishTransfer.Task backupTo(Uri tree, WishTransfer.Callback callback) {
+        WishTransfer.Task task = new WishTransfer.Task();
+        executor.execute(() -> {
+            try (PerfMetrics.Section ignored = PerfMetrics.section("WishBackup.backup")) {
+                repository.flushWrites();
+                BackupFolder folder = new BackupFolder(resolver, tree, true);
+                BackupManifest previous = folder.latestManifest();
+
+                // the rows go to a local file first: exportAll holds the db thread and a transaction that writes
+                // wait on, and the backup folder can be slow, e.g. a cloud provider
+                File export = File.createTempFile("backup", ".records", cacheDir);
+                Set<String> imageNames = new LinkedHashSet<>();
+                ChunkWriter data = new ChunkWriter(folder);
+                int count;
+                try {
+                    count = repository.runExclusive(store -> {
+                        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(export), BUFFER_SIZE)) {
+                            return exportRecords(store, out, imageNames);
+                        }
+                    });
+                    try (InputStream in = new FileInputStream(export)) {
+                        copy(in, data);
+                    }
+                } finally {
+                    export.delete();
+                }
+                data.close();
+                int storedChunks = data.getStoredCount();
+                long storedBytes = data.getStoredBytes();
+
+                Map<String, List<String>> images = new LinkedHashMap<>();
+                int done = 0;
+                for (String name : imageNames) {
+                    if (task.isCancelled()) {
+                        break;
+                    }
+                    // image files are named by their content, so one already in the last backup has not changed
+                    List<String> kept = previous == null ? null : previous.getImages().get(name);
+                    if (kept != null && containsAll(folder, kept)) {
+                        images.put(name, kept);
+                    } else {
+                        File file = new File(imageDir, name);
+                        if (file.exists()) {
+                            ChunkWriter image = new ChunkWriter(folder);
+                            try (InputStream in = new FileInputStream(file)) {
+                                copy(in, image);
+                            }
+                            image.close();
+                            images.put(name, image.getChunkIds());
+                            storedChunks += image.getStoredCount();
+                            storedBytes += image.getStoredBytes();
+                        }
+                    }
+                    int percent = ++done * 100 / imageNames.size();
+                    mainHandler.post(() -> callback.onProgress(percent));
+                }
+
+                if (!task.isCancelled()) {
+                    BackupManifest manifest = new BackupManifest(System.currentTimeMillis(), data.getChunkIds(), images);
+                    folder.writeManifest(manifest);
+                    prune(folder);
+                }
+                PerfMetrics.setGauge("backup.chunks_written", storedChunks);
+                PerfMetrics.setGauge("backup.bytes_written", storedBytes);
+
+                mainHandler.post(() -> callback.onFinished(count, task.isCancelled()));
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                mainHandler.post(() -> callback.onFailed(e));
+            }
+        });
+        return task;
+    }
+
+    // restores the newest backup in the folder over everything on this device. Images come first, so the rows
+    // pointing at them never show a missing file; the rows then go in as one transaction and cannot be cancelled
+    public WishTransfer.Task restoreFrom(Uri tree, WishTransfer.Callback callback) {
+        WishTransfer.Task task = new WishTransfer.Task();
+        executor.execute(() -> {
+            try (PerfMetrics.Section ignored = PerfMetrics.section("WishBackup.restore")) {
+                repository.flushWrites();
+                BackupFolder folder = new BackupFolder(resolver, tree, false);
+                BackupManifest manifest = folder.latestManifest();
+                if (manifest == null) {
+                    throw new FileNotFoundException("No backup in " + tree);
+                }
+
+                Map<String, List<String>> images = manifest.getImages();
+                int done = 0;
+                for (Map.Entry<String, List<String>> image : images.entrySet()) {
+                    if (task.isCancelled()) {
+                        mainHandler.post(() -> callback.onFinished(0, true));
+                        return;
+                    }
+                    if (ImageImporter.isImageName(image.getKey())) {
+                        restoreImage(folder, image.getKey(), image.getValue());
+                    }
+                    int percent = ++done * 100 / images.size();
+                    mainHandler.post(() -> callback.onProgress(percent));
+                }
+
+                // staged locally for the same reason a backup is: replaceAll holds the db thread for its transaction
+                File records = File.createTempFile("restore", ".records", cacheDir);
+                int count;
+                try {
+                    try (InputStream in = new ChunkReader(manifest.getDataChunks(), folder);
+                         OutputStream out = new FileOutputStream(records)) {
+                        copy(in, out);
+                    }
+                    count = repository.runExclusive(store -> {
+                        try (InputStream in = new BufferedInputStream(new FileInputStream(records), BUFFER_SIZE)) {
+                            return store.replaceAll(in, name -> Uri.fromFile(new File(imageDir, name)).toString());
+                        }
+                    });
+                } finally {
+                    records.delete();
+                }
+                mainHandler.post(() -> {
+                    repository.reload();
+                    callback.onFinished(count, false);
+                });
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                mainHandler.post(() -> callback.onFailed(e));
+            }
+        });
+        return task;
+    }
+
+    // writes every row to out and collects the image files they use; returns the number of wishes
+    private int exportRecords(WishStore store, OutputStream out, Set<String> imageNames) throws IOException {
+        BackupRecords.Writer records = new BackupRecords.Writer(out);
+        store.exportAll(new BackupRecords.Visitor() {
+            @Override
+            public void list(long id, String name) throws IOException {
+                records.list(id, name);
+            }
+
+            @Override
+            public void wish(long id, long listId, String name, long priceSatang, String image, long createdAt)
+                    throws IOException {
+                records.wish(id, listId, name, priceSatang, image, createdAt);
+                if (ImageImporter.isImageName(image)) {
+                    imageNames.add(image);
+                }
+            }
+
+            @Override
+            public void deposit(long id, long wishId, long amountSatang, long createdAt) throws IOException {
+                records.deposit(id, wishId, amountSatang, createdAt);
+            }
+        });
+        records.finish();
+        return records.getWishCount();
+    }
+
+    // a file already here under the same name has the same content, see ImageImporter
+    private void restoreImage(BackupFolder folder, String name, List<String> chunks) throws IOException {
+        File target = new File(imageDir, name);
+        if (target.exists()) {
+            return;
+        }
+        if (!imageDir.exists() && !imageDir.mkdirs()) {
+            throw new IOException("cannot create " + imageDir);
+        }
+        File temp = new File(imageDir, name + ".tmp");
+        try (InputStream in = new ChunkReader(chunks, folder);
+             OutputStream out = new FileOutputStream(temp)) {
+            copy(in, out);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("cannot rename " + temp);
+        }
+    }
+
+    // keeps the newest backups and deletes the chunks none of them use
+    private static void prune(BackupFolder folder) throws IOException {
+        List<String> manifests = folder.manifests();
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i < manifests.size(); i++) {
+            if (i < KEEP_BACKUPS) {
+                used.addAll(folder.readManifest(manifests.get(i)).allChunks());
+            } else {
+                folder.deleteManifest(manifests.get(i));
+            }
+        }
+        for (String id : folder.chunkIds()) {
+            if (!used.contains(id)) {
+                folder.deleteChunk(id);
+            }
+        }
+    }
+
+    private static boolean containsAll(BackupFolder folder, List<String> chunks) {
+        for (String id : chunks) {
+            if (!folder.contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+}
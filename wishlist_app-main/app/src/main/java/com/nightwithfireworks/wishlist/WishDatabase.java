@@ -0,0 +1,243 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.nightwithfireworks.wishlist.core.Wish;
+import com.nightwithfireworks.wishlist.core.WishJsonReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+
+public class WishDatabase extends SQLiteOpenHelper {
+
+    static final String DATABASE_NAME = "wishlist.db";
+    private static final int DATABASE_VERSION = 4;
+
+    static final String LEGACY_PREF_NAME = "wishlist_prefs";
+    static final String LEGACY_KEY_WISHLIST = "wishlist_data";
+
+    static final String TABLE_LISTS = "lists";
+    static final long DEFAULT_LIST_ID = 1;
+
+    static final String TABLE_WISHES = "wishes";
+    static final String COL_ID = "_id";
+    static final String COL_NAME = "name";
+    static final String COL_PRICE_SATANG = "price_satang";
+    static final String COL_IMAGE_URI = "image_uri";
+    static final String COL_SAVED_SATANG = "saved_satang";
+    static final String COL_CREATED_AT = "created_at";
+    static final String COL_LIST_ID = "list_id";
+
+    static final String TABLE_DEPOSITS = "deposits";
+    static final String COL_WISH_ID = "wish_id";
+    static final String COL_AMOUNT_SATANG = "amount_satang";
+
+    static final String TABLE_IMAGES = "images";
+    static final String COL_URI = "uri";
+    static final String COL_REF_COUNT = "ref_count";
+
+    private static WishDatabase instance;
+
+    private final Context context;
+
+    public static synchronized WishDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new WishDatabase(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    @VisibleForTesting
+    static synchronized void resetForTesting() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    private WishDatabase(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this.context = context;
+    }
+
+    // main file plus the WAL, which holds recent writes until the next checkpoint
+    public long getSizeBytes() {
+        File file = context.getDatabasePath(DATABASE_NAME);
+        File wal = new File(file.getPath() + "-wal");
+        return file.length() + wal.length();
+    }
+
+    // see ImageImporter.isImported: the images table only counts files in here
+    File getImageDir() {
+        return ImageImporter.imageDir(context);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        db.enableWriteAheadLogging();
+        db.setForeignKeyConstraintsEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        createListsTable(db);
+        createWishesTable(db, TABLE_WISHES);
+        createWishesIndexes(db);
+        createDepositsTable(db);
+        createImagesTable(db);
+
+        migrateLegacyPrefs(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // first, because the rebuilt wishes table below already references it
+        if (oldVersion < 4) {
+            createListsTable(db);
+        }
+        if (oldVersion < 2) {
+            upgradeToSatang(db);
+        } else if (oldVersion < 4) {
+            // SQLite refuses to add a REFERENCES column with a non-NULL default to a table that has rows, and
+            // rebuilding the table is no way round it: with foreign keys on, dropping the old wishes table cascades
+            // into deposits. So upgraded installs get the column without the constraint; nothing deletes lists
+            db.execSQL("ALTER TABLE " + TABLE_WISHES + " ADD COLUMN " + COL_LIST_ID
+                    + " INTEGER NOT NULL DEFAULT " + DEFAULT_LIST_ID);
+            createListIndex(db);
+        }
+        if (oldVersion < 3) {
+            createImagesTable(db);
+            db.execSQL("INSERT INTO " + TABLE_IMAGES + " (" + COL_URI + ", " + COL_REF_COUNT + ") "
+                    + "SELECT " + COL_IMAGE_URI + ", COUNT(*) FROM " + TABLE_WISHES
+                    + " WHERE " + COL_IMAGE_URI + " LIKE 'file:%' GROUP BY " + COL_IMAGE_URI);
+        }
+    }
+
+    private static void createWishesTable(SQLiteDatabase db, String table) {
+        db.execSQL("CREATE TABLE " + table + " ("
+                + COL_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COL_NAME + " TEXT NOT NULL, "
+                + COL_PRICE_SATANG + " INTEGER NOT NULL, "
+                + COL_IMAGE_URI + " TEXT NOT NULL DEFAULT '', "
+                + COL_SAVED_SATANG + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_CREATED_AT + " INTEGER NOT NULL, "
+                + COL_LIST_ID + " INTEGER NOT NULL DEFAULT " + DEFAULT_LIST_ID
+                + " REFERENCES " + TABLE_LISTS + "(" + COL_ID + ") ON DELETE CASCADE)");
+    }
+
+    // every existing wish lands in the default list
+    private void createListsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_LISTS + " ("
+                + COL_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COL_NAME + " TEXT NOT NULL)");
+        ContentValues values = new ContentValues();
+        values.put(COL_ID, DEFAULT_LIST_ID);
+        values.put(COL_NAME, context.getString(R.string.default_list_name));
+        db.insert(TABLE_LISTS, null, values);
+    }
+
+    // each list is its own shard: pages are read with list_id = ? AND _id > ?
+    private static void createListIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX idx_wishes_list ON " + TABLE_WISHES + " (" + COL_LIST_ID + ", " + COL_ID + ")");
+    }
+
+    private static void createWishesIndexes(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX idx_wishes_price ON " + TABLE_WISHES + " (" + COL_PRICE_SATANG + ")");
+        db.execSQL("CREATE INDEX idx_wishes_saved ON " + TABLE_WISHES + " (" + COL_SAVED_SATANG + ")");
+        db.execSQL("CREATE INDEX idx_wishes_created_at ON " + TABLE_WISHES + " (" + COL_CREATED_AT + ")");
+        createListIndex(db);
+    }
+
+    // append-only: rows are never updated, the running total lives in wishes.saved_satang
+    private static void createDepositsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_DEPOSITS + " ("
+                + COL_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COL_WISH_ID + " INTEGER NOT NULL REFERENCES " + TABLE_WISHES
+                + "(" + COL_ID + ") ON DELETE CASCADE, "
+                + COL_AMOUNT_SATANG + " INTEGER NOT NULL, "
+                + COL_CREATED_AT + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_deposits_wish ON " + TABLE_DEPOSITS
+                + " (" + COL_WISH_ID + ", " + COL_ID + ")");
+    }
+
+    // one row per imported image file, counting the wishes that point at it
+    private static void createImagesTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_IMAGES + " ("
+                + COL_URI + " TEXT PRIMARY KEY, "
+                + COL_REF_COUNT + " INTEGER NOT NULL DEFAULT 0)");
+    }
+
+    // v1 stored baht as REAL; existing saved amounts become one opening ledger entry
+    private static void upgradeToSatang(SQLiteDatabase db) {
+        createWishesTable(db, "wishes_v2");
+        db.execSQL("INSERT INTO wishes_v2 ("
+                + COL_ID + ", " + COL_NAME + ", " + COL_PRICE_SATANG + ", "
+                + COL_IMAGE_URI + ", " + COL_SAVED_SATANG + ", " + COL_CREATED_AT + ") "
+                + "SELECT _id, name, CAST(ROUND(price * 100) AS INTEGER), image_uri, "
+                + "CAST(ROUND(saved_amount * 100) AS INTEGER), created_at FROM " + TABLE_WISHES);
+        db.execSQL("DROP TABLE " + TABLE_WISHES);
+        db.execSQL("ALTER TABLE wishes_v2 RENAME TO " + TABLE_WISHES);
+        createWishesIndexes(db);
+
+        createDepositsTable(db);
+        db.execSQL("INSERT INTO " + TABLE_DEPOSITS + " ("
+                + COL_WISH_ID + ", " + COL_AMOUNT_SATANG + ", " + COL_CREATED_AT + ") "
+                + "SELECT " + COL_ID + ", " + COL_SAVED_SATANG + ", " + COL_CREATED_AT
+                + " FROM " + TABLE_WISHES + " WHERE " + COL_SAVED_SATANG + " > 0");
+    }
+
+    // onCreate runs inside the helper's transaction, so the import happens exactly once. The prefs key goes only
+    // after every record was read: a payload that breaks part way imports nothing and stays where it is, so no
+    // wish is lost for good and a bad record cannot fail onCreate on every launch
+    private void migrateLegacyPrefs(SQLiteDatabase db) {
+        SharedPreferences prefs = context.getSharedPreferences(LEGACY_PREF_NAME, Context.MODE_PRIVATE);
+        String json = prefs.getString(LEGACY_KEY_WISHLIST, null);
+        if (json == null) {
+            return;
+        }
+
+        try (WishJsonReader reader = new WishJsonReader(new StringReader(json))) {
+            long now = System.currentTimeMillis();
+            int index = 0;
+            ContentValues values = new ContentValues();
+            ContentValues deposit = new ContentValues();
+
+            while (reader.hasNext()) {
+                Wish wish = reader.next();
+                if (wish == null) {
+                    continue;
+                }
+                long createdAt = now + index++;
+
+                values.put(COL_NAME, wish.getName());
+                values.put(COL_PRICE_SATANG, wish.getPriceSatang());
+                values.put(COL_IMAGE_URI, wish.getImageUri());
+                values.put(COL_SAVED_SATANG, wish.getSavedSatang());
+                values.put(COL_CREATED_AT, createdAt);
+                long wishId = db.insertOrThrow(TABLE_WISHES, null, values);
+
+                if (wish.getSavedSatang() > 0) {
+                    deposit.put(COL_WISH_ID, wishId);
+                    deposit.put(COL_AMOUNT_SATANG, wish.getSavedSatang());
+                    deposit.put(COL_CREATED_AT, createdAt);
+                    db.insertOrThrow(TABLE_DEPOSITS, null, deposit);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            // the database is brand new, so this removes exactly the rows read before the failure
+            db.delete(TABLE_DEPOSITS, null, null);
+            db.delete(TABLE_WISHES, null, null);
+            return;
+        }
+
+        prefs.edit().remove(LEGACY_KEY_WISHLIST).apply();
+    }
+}
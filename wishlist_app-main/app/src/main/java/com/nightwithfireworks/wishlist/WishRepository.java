@@ -0,0 +1,623 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.StrictMode;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.nightwithfireworks.wishlist.core.Deposit;
+import com.nightwithfireworks.wishlist.core.DepositAllocator;
+import com.nightwithfireworks.wishlist.core.NamedList;
+import com.nightwithfireworks.wishlist.core.PortfolioTotals;
+import com.nightwithfireworks.wishlist.core.Wish;
+import com.nightwithfireworks.wishlist.core.WishSort;
+import com.nightwithfireworks.wishlist.core.WishlistSnapshot;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+public class WishRepository {
+
+    public interface Listener {
+        void onWishesChanged(List<Wish> wishes);
+
+        default void onFullyLoaded() {
+        }
+
+        default void onListsChanged(List<NamedList> lists, long activeListId) {
+        }
+    }
+
+    // bulk work on the store, see runExclusive()
+    public interface StoreTask<T> {
+        T run(WishStore store) throws IOException;
+    }
+
+    private static final String TAG = "WishRepository";
+    private static final int FIRST_BATCH_SIZE = 10;
+    private static final int MAX_BATCH_SIZE = 1000;
+    // the open list, the warmed neighbour and the one just left
+    private static final int MAX_SHARDS = 3;
+    // the startup snapshot is rewritten at most this often while wishes change
+    private static final long SNAPSHOT_INTERVAL_MS = 2000;
+    // a fresh launch shows the open list in the order its wishes were added, so that is the order the startup
+    // cards are taken in
+    private static final WishSort SNAPSHOT_SORT = WishSort.ADDED;
+
+    private static WishRepository instance;
+
+    private final WishStore store;
+    private final StartupSnapshot snapshot;
+    private final ImageImporter importer;
+    private final ScheduledExecutorService dbExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final WriteScheduler writes;
+    private final ForecastEngine forecasts;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Map<Long, ListShard> shards = new LinkedHashMap<>(MAX_SHARDS + 1, 0.75f, true);
+    private ListShard active = new ListShard(WishDatabase.DEFAULT_LIST_ID);
+    private List<NamedList> lists = Collections.emptyList();
+    // written only by publish() on the main thread, read from any thread
+    private volatile WishlistSnapshot current = WishlistSnapshot.EMPTY;
+    private long version = 0;
+    private List<Wish> startupWishes = Collections.emptyList();
+    private WishSort startupSort = SNAPSHOT_SORT;
+    private PortfolioTotals persistedTotals;
+    private long persistedListId = -1;
+    private boolean started = false;
+    private boolean showingSnapshot = false;
+    private boolean snapshotStale = false;
+    private boolean snapshotScheduled = false;
+    private long timeToFirstCardMs = -1;
+    private long timeToFullyLoadedMs = -1;
+
+    public static synchronized WishRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new WishRepository(new WishStore(WishDatabase.getInstance(context)),
+                    new StartupSnapshot(context), ImageImporter.getInstance(context));
+        }
+        return instance;
+    }
+
+    // scale tests relaunch the app several times in one process; work already queued on the db thread still runs
+    @VisibleForTesting
+    static synchronized void resetForTesting() {
+        if (instance == null) {
+            return;
+        }
+        instance.dbExecutor.shutdown();
+        try {
+            instance.dbExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        instance = null;
+    }
+
+    WishRepository(WishStore store, StartupSnapshot snapshot, ImageImporter importer) {
+        this.store = store;
+        this.snapshot = snapshot;
+        this.importer = importer;
+        this.writes = new WriteScheduler(store, dbExecutor, () -> mainHandler.post(this::reload),
+                () -> mainHandler.post(this::scheduleSnapshot));
+        this.forecasts = new ForecastEngine(store, task -> dbExecutor.execute(() -> {
+            writes.drain();
+            task.run();
+        }));
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        listener.onWishesChanged(current.getWishes());
+        if (!lists.isEmpty()) {
+            listener.onListsChanged(lists, active.listId);
+        }
+        if (active.reachedEnd) {
+            listener.onFullyLoaded();
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public ForecastEngine getForecasts() {
+        return forecasts;
+    }
+
+    public List<NamedList> getLists() {
+        return lists;
+    }
+
+    public long getActiveListId() {
+        return active.listId;
+    }
+
+    // the latest published version of the open list; safe to read from any thread and never changes underneath
+    public WishlistSnapshot snapshot() {
+        return current;
+    }
+
+    public List<Wish> getWishes() {
+        return current.getWishes();
+    }
+
+    public int size() {
+        return current.size();
+    }
+
+    public Wish find(long id) {
+        return current.find(id);
+    }
+
+    // falls back to the store when the wish has not been loaded yet, e.g. after process death
+    public void find(long id, Consumer<Wish> callback) {
+        Wish wish = find(id);
+        if (wish != null) {
+            callback.accept(wish);
+            return;
+        }
+        dbExecutor.execute(() -> {
+            writes.drain();
+            Wish stored = store.find(id);
+            mainHandler.post(() -> {
+                Wish loaded = find(id);
+                callback.accept(loaded != null ? loaded : stored);
+            });
+        });
+    }
+
+    // measured on the database thread after the pending writes; callback runs on the main thread
+    public void measureStoreSize(Consumer<Long> callback) {
+        dbExecutor.execute(() -> {
+            writes.drain();
+            long bytes = store.getSizeBytes();
+            mainHandler.post(() -> callback.accept(bytes));
+        });
+    }
+
+    // maxRemainingSatang < 0 means no budget filter; the filter skips wishes that are already complete
+    public List<Wish> query(WishSort sort, long maxRemainingSatang) {
+        if (showingSnapshot) {
+            // cards taken in another order, or unfiltered, would jump around once the real rows arrive
+            return sort == startupSort && maxRemainingSatang < 0 ? startupWishes : Collections.emptyList();
+        }
+        return active.query(sort, maxRemainingSatang);
+    }
+
+    // search-as-you-type over the open list's names; a blank query is the same as query()
+    public List<Wish> search(String text, WishSort sort, long maxRemainingSatang) {
+        if (text.trim().isEmpty()) {
+            return query(sort, maxRemainingSatang);
+        }
+        // the startup cards are not indexed; the first batch replaces them within a frame or two and searches again
+        return showingSnapshot ? Collections.emptyList() : active.search(text, sort, maxRemainingSatang);
+    }
+
+    public PortfolioTotals getTotals() {
+        return current.getTotals();
+    }
+
+    public boolean isFullyLoaded() {
+        return active.reachedEnd;
+    }
+
+    public long getTimeToFirstCardMs() {
+        return timeToFirstCardMs;
+    }
+
+    public long getTimeToFullyLoadedMs() {
+        return timeToFullyLoadedMs;
+    }
+
+    // opens the list that was open last time; only that list is read before the first frame
+    public void load() {
+        if (started) {
+            return;
+        }
+        started = true;
+
+        // a few hundred bytes, read inline so the first frame already has cards and totals
+        StartupSnapshot.Contents cached;
+        StrictMode.ThreadPolicy policy = StrictMode.allowThreadDiskReads();
+        try {
+            cached = snapshot.read();
+        } finally {
+            StrictMode.setThreadPolicy(policy);
+        }
+        persistedTotals = cached.totals;
+        persistedListId = cached.listId;
+        active = shard(cached.listId);
+        if (!cached.wishes.isEmpty()) {
+            showingSnapshot = true;
+            startupWishes = Collections.unmodifiableList(new ArrayList<>(cached.wishes));
+            startupSort = cached.sort;
+            publish();
+        }
+        startLoading(active);
+
+        dbExecutor.execute(() -> {
+            List<NamedList> loaded = store.loadLists();
+            mainHandler.post(() -> setLists(loaded));
+        });
+    }
+
+    public void switchTo(long listId) {
+        if (listId == active.listId) {
+            return;
+        }
+        showingSnapshot = false;
+        active = shard(listId);
+        startLoading(active);
+        publish();
+        notifyListsChanged();
+        if (active.reachedEnd) {
+            warmNeighbour();
+        }
+    }
+
+    public void createList(String name) {
+        writes.schedule(() -> {
+            NamedList created = store.insertList(name);
+            mainHandler.post(() -> {
+                List<NamedList> updated = new ArrayList<>(lists);
+                updated.add(created);
+                lists = Collections.unmodifiableList(updated);
+                switchTo(created.getId());
+            });
+        });
+    }
+
+    // after the database changed underneath, by a restore or by writes that failed to commit: every loaded list
+    // and forecast is dropped and the open list is read again, or the default list when it no longer exists
+    public void reload() {
+        shards.clear();
+        forecasts.forgetAll();
+        showingSnapshot = false;
+        startupWishes = Collections.emptyList();
+        persistedTotals = null;
+        persistedListId = -1;
+        dbExecutor.execute(snapshot::delete);
+
+        active = shard(active.listId);
+        startLoading(active);
+        publish();
+        dbExecutor.execute(() -> {
+            List<NamedList> loaded = store.loadLists();
+            mainHandler.post(() -> {
+                boolean found = false;
+                for (NamedList list : loaded) {
+                    found |= list.getId() == active.listId;
+                }
+                if (!found) {
+                    switchTo(WishDatabase.DEFAULT_LIST_ID);
+                }
+                setLists(loaded);
+            });
+        });
+    }
+
+    private void setLists(List<NamedList> loaded) {
+        lists = Collections.unmodifiableList(loaded);
+        notifyListsChanged();
+        if (active.reachedEnd) {
+            warmNeighbour();
+        }
+    }
+
+    private ListShard shard(long listId) {
+        ListShard shard = shards.get(listId);
+        if (shard == null) {
+            shard = new ListShard(listId);
+            shards.put(listId, shard);
+        }
+        Iterator<ListShard> eldest = shards.values().iterator();
+        while (shards.size() > MAX_SHARDS && eldest.hasNext()) {
+            ListShard candidate = eldest.next();
+            if (candidate != shard && candidate != active) {
+                eldest.remove();
+            }
+        }
+        return shard;
+    }
+
+    // loads the list after the open one (or before it, for the last list) so switching there is instant
+    private void warmNeighbour() {
+        for (int i = 0; i < lists.size(); i++) {
+            if (lists.get(i).getId() != active.listId) {
+                continue;
+            }
+            int neighbour = i + 1 < lists.size() ? i + 1 : i - 1;
+            if (neighbour >= 0) {
+                startLoading(shard(lists.get(neighbour).getId()));
+            }
+            return;
+        }
+    }
+
+    private void startLoading(ListShard shard) {
+        if (shard.loadStarted) {
+            return;
+        }
+        shard.loadStarted = true;
+        dbExecutor.execute(() -> loadBatch(shard, 0, FIRST_BATCH_SIZE));
+    }
+
+    // each batch is its own task so writes queued meanwhile are not held behind the whole load
+    private void loadBatch(ListShard shard, long afterId, int batchSize) {
+        writes.drain();
+        List<Wish> batch = store.loadPage(shard.listId, afterId, batchSize);
+        boolean last = batch.size() < batchSize;
+        mainHandler.post(() -> appendBatch(shard, batch, last));
+
+        if (!last) {
+            long nextAfterId = batch.get(batch.size() - 1).getId();
+            int nextBatchSize = Math.min(batchSize * 2, MAX_BATCH_SIZE);
+            dbExecutor.execute(() -> loadBatch(shard, nextAfterId, nextBatchSize));
+        }
+    }
+
+    private void appendBatch(ListShard shard, List<Wish> batch, boolean last) {
+        // the startup cards stay up until the first real batch replaces them; the adapter diff hides the swap
+        boolean replacesStartup = shard == active && showingSnapshot;
+        if (replacesStartup) {
+            showingSnapshot = false;
+        }
+        mutate(shard, s -> {
+            boolean changed = s.append(batch);
+            if (last) {
+                s.reachedEnd = true;
+            }
+            return changed || last || replacesStartup;
+        });
+        if (shard != active) {
+            return;
+        }
+
+        long sinceStart = SystemClock.uptimeMillis() - Process.getStartUptimeMillis();
+        if (timeToFirstCardMs < 0 && (!batch.isEmpty() || last)) {
+            timeToFirstCardMs = sinceStart;
+            PerfMetrics.setGauge("startup.first_card_ms", timeToFirstCardMs);
+            Log.i(TAG, "time-to-first-card: " + timeToFirstCardMs + " ms");
+        }
+        if (last) {
+            if (timeToFullyLoadedMs < 0) {
+                timeToFullyLoadedMs = sinceStart;
+                PerfMetrics.setGauge("startup.fully_loaded_ms", timeToFullyLoadedMs);
+                Log.i(TAG, "time-to-fully-loaded: " + timeToFullyLoadedMs + " ms, " + current.size() + " wishes");
+            }
+            for (Listener listener : listeners) {
+                listener.onFullyLoaded();
+            }
+            warmNeighbour();
+        }
+    }
+
+    // picks up rows written straight to the store after afterId, e.g. by a bulk import. The caller reads afterId
+    // from the store before writing: a wish added to the list meanwhile is already loaded but has a higher id than
+    // rows written before it, so the loaded tail cannot tell what is new. A load still running sees them anyway
+    public void loadRowsAfter(long listId, long afterId) {
+        ListShard shard = shards.get(listId);
+        if (shard == null || !shard.reachedEnd) {
+            return;
+        }
+        dbExecutor.execute(() -> loadRowsAfter(shard, afterId));
+    }
+
+    private void loadRowsAfter(ListShard shard, long afterId) {
+        writes.drain();
+        List<Wish> batch = store.loadPage(shard.listId, afterId, MAX_BATCH_SIZE);
+        if (batch.isEmpty()) {
+            return;
+        }
+        mainHandler.post(() -> mutate(shard, s -> s.append(batch)));
+        if (batch.size() == MAX_BATCH_SIZE) {
+            long nextAfterId = batch.get(batch.size() - 1).getId();
+            dbExecutor.execute(() -> loadRowsAfter(shard, nextAfterId));
+        }
+    }
+
+    public void add(String name, long priceSatang, String imageUri) {
+        add(active.listId, name, priceSatang, imageUri);
+    }
+
+    // into listId even if another list has been opened since the caller read it
+    public void add(long listId, String name, long priceSatang, String imageUri) {
+        writes.schedule(() -> {
+            Wish wish = store.insert(listId, name, priceSatang, imageUri);
+            // a list that is not loaded, or still loading, picks the new row up with a later batch
+            mainHandler.post(() -> {
+                ListShard shard = shards.get(listId);
+                if (shard != null) {
+                    mutate(shard, s -> s.reachedEnd && s.append(Collections.singletonList(wish)));
+                }
+            });
+        });
+    }
+
+    public void addDeposit(long id, long amountSatang) {
+        mutate(active, s -> {
+            Wish wish = s.find(id);
+            return wish != null && s.replace(wish, wish.withSavedSatang(wish.getSavedSatang() + amountSatang));
+        });
+
+        writes.schedule(() -> store.addDeposit(id, amountSatang));
+        forecasts.invalidate(id);
+    }
+
+    // splits amountSatang across the given wishes of the open list and records it as one write: every share lands
+    // or none does. Returns the share of each id, in order; what no wish could take is not deposited
+    public long[] addDeposits(long[] wishIds, long amountSatang, DepositAllocator.Strategy strategy) {
+        List<Wish> before = new ArrayList<>(wishIds.length);
+        for (long id : wishIds) {
+            Wish wish = active.find(id);
+            before.add(wish != null ? wish : new Wish(id, "", 0L, null, 0L));
+        }
+        long[] shares = DepositAllocator.allocate(before, amountSatang, strategy);
+
+        List<Wish> after = new ArrayList<>(before.size());
+        for (int i = 0; i < before.size(); i++) {
+            Wish wish = before.get(i);
+            after.add(wish.withSavedSatang(wish.getSavedSatang() + shares[i]));
+        }
+        mutate(active, s -> s.replaceAll(before, after));
+
+        writes.schedule(() -> store.addDeposits(wishIds, shares));
+        for (int i = 0; i < wishIds.length; i++) {
+            if (shares[i] > 0) {
+                forecasts.invalidate(wishIds[i]);
+            }
+        }
+        return shares;
+    }
+
+    public void loadDeposits(long wishId, long beforeId, int limit, Consumer<List<Deposit>> callback) {
+        dbExecutor.execute(() -> {
+            writes.drain();
+            List<Deposit> page = store.loadDeposits(wishId, beforeId, limit);
+            mainHandler.post(() -> callback.accept(page));
+        });
+    }
+
+    public void delete(long id) {
+        mutate(active, s -> s.remove(id));
+
+        forecasts.forget(id);
+        writes.schedule(() -> {
+            String orphan = store.delete(id);
+            if (orphan != null) {
+                importer.markOrphan(orphan);
+            }
+        });
+    }
+
+    // for imports, exports, backups and restores: runs task on the db thread after every write queued so far, so
+    // the store is only ever written, and transactions only held, from that one thread. Blocks the calling thread
+    // until the task is done, which must therefore be neither the main thread nor the db thread. The caller brings
+    // the loaded lists up to date afterwards, e.g. with loadRowsAfter() or reload()
+    public <T> T runExclusive(StoreTask<T> task) throws IOException {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            throw new IllegalStateException("Bulk store work must not block the main thread");
+        }
+        Future<T> result = dbExecutor.submit(() -> {
+            writes.drain();
+            return task.run(store);
+        });
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for the store");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    // safe from any thread except the db thread itself; throws IllegalStateException when a write was lost
+    public void flushWrites() {
+        writes.flushNow();
+    }
+
+    // called when the app leaves the foreground; the process may be killed without further callbacks
+    public void flush() {
+        try {
+            flushWrites();
+        } catch (IllegalStateException e) {
+            // already logged, and the reload it triggered brings memory back in line with the database
+            Log.w(TAG, "flush lost writes", e);
+        }
+        dbExecutor.execute(() -> {
+            writes.drain();
+            importer.sweep(uri -> store.imageRefCount(uri) == 0);
+        });
+        writeSnapshot();
+    }
+
+    // after the store committed a burst of writes; bursts closer together than SNAPSHOT_INTERVAL_MS share a write
+    private void scheduleSnapshot() {
+        if (snapshotScheduled) {
+            return;
+        }
+        snapshotScheduled = true;
+        mainHandler.postDelayed(this::writeSnapshot, SNAPSHOT_INTERVAL_MS);
+    }
+
+    // only a completely loaded list is saved, so the totals are real. The cards are written after the writes
+    // behind them, so the file never shows a change the database does not have
+    private void writeSnapshot() {
+        snapshotScheduled = false;
+        WishlistSnapshot published = current;
+        if (!snapshotStale || !published.isComplete()) {
+            return;
+        }
+        snapshotStale = false;
+        List<Wish> cards = active.query(SNAPSHOT_SORT, -1);
+        dbExecutor.execute(() -> {
+            writes.drain();
+            snapshot.write(published.getListId(), SNAPSHOT_SORT, cards, published.getTotals());
+        });
+    }
+
+    // the single write path for loaded wishes: changes a shard on the main thread, then publishes a new
+    // version if the change touched the open list
+    private void mutate(ListShard shard, Predicate<ListShard> change) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            throw new IllegalStateException("Wishes may only change on the main thread");
+        }
+        if (change.test(shard) && shard == active) {
+            publish();
+        }
+    }
+
+    // shards swap their lists on every change instead of editing them, so wrapping one here copies nothing
+    private void publish() {
+        List<Wish> wishes = showingSnapshot ? startupWishes : active.getWishes();
+        // the totals saved with the startup snapshot stand in until every row of that list has been counted
+        boolean usePersisted = !active.reachedEnd && persistedTotals != null && persistedListId == active.listId;
+        PortfolioTotals totals = usePersisted ? persistedTotals : active.getTotals();
+        current = new WishlistSnapshot(++version, active.listId, wishes, totals, active.reachedEnd && !showingSnapshot);
+        if (!showingSnapshot) {
+            snapshotStale = true;
+        }
+        PerfMetrics.setGauge("wishes.count", wishes.size());
+        for (Listener listener : listeners) {
+            listener.onWishesChanged(wishes);
+        }
+    }
+
+    private void notifyListsChanged() {
+        for (Listener listener : listeners) {
+            listener.onListsChanged(lists, active.listId);
+        }
+    }
+}
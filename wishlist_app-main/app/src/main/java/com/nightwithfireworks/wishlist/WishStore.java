@@ -0,0 +1,419 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+
+import com.nightwithfireworks.wishlist.core.BackupRecords;
+import com.nightwithfireworks.wishlist.core.Deposit;
+import com.nightwithfireworks.wishlist.core.DepositSummary;
+import com.nightwithfireworks.wishlist.core.NamedList;
+import com.nightwithfireworks.wishlist.core.Wish;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.nightwithfireworks.wishlist.WishDatabase.COL_AMOUNT_SATANG;
+import static com.nightwithfireworks.wishlist.WishDatabase.COL_CREATED_AT;
+import static com.nightwithfireworks.wishlist.WishDatabase.COL_ID;
+import static com.nightwithfireworks.wishlist.WishDatabase.COL_IMAGE_URI;
+import static com.nightwithfireworks.wishlist.WishDatabase.COL_LIST_ID;
+import static com.nightwithfireworks.wishlist.WishDatabase.COL_NAME;
+import static com.nightwithfireworks.wishlist.WishDatabase.COL_PRICE_SATANG;
+import static com.nightwithfireworks.wishlist.WishDatabase.COL_REF_COUNT;
+import static com.nightwithfireworks.wishlist.WishDatabase.COL_SAVED_SATANG;
+import static com.nightwithfireworks.wishlist.WishDatabase.COL_URI;
+import static com.nightwithfireworks.wishlist.WishDatabase.COL_WISH_ID;
+import static com.nightwithfireworks.wishlist.WishDatabase.TABLE_DEPOSITS;
+import static com.nightwithfireworks.wishlist.WishDatabase.TABLE_IMAGES;
+import static com.nightwithfireworks.wishlist.WishDatabase.TABLE_LISTS;
+import static com.nightwithfireworks.wishlist.WishDatabase.TABLE_WISHES;
+
+public class WishStore {
+
+    private static final String[] COLUMNS = {
+            COL_ID, COL_NAME, COL_PRICE_SATANG, COL_IMAGE_URI, COL_SAVED_SATANG
+    };
+
+    private static final String[] DEPOSIT_COLUMNS = {
+            COL_ID, COL_WISH_ID, COL_AMOUNT_SATANG, COL_CREATED_AT
+    };
+
+    private static final String ADD_TO_SAVED = "UPDATE " + TABLE_WISHES
+            + " SET " + COL_SAVED_SATANG + " = " + COL_SAVED_SATANG + " + ? WHERE " + COL_ID + " = ?";
+
+    private static final String ADD_IMAGE_REF = "UPDATE " + TABLE_IMAGES
+            + " SET " + COL_REF_COUNT + " = " + COL_REF_COUNT + " + ? WHERE " + COL_URI + " = ?";
+
+    private static final String RECOUNT_SAVED = "UPDATE " + TABLE_WISHES + " SET " + COL_SAVED_SATANG
+            + " = (SELECT COALESCE(SUM(" + COL_AMOUNT_SATANG + "), 0) FROM " + TABLE_DEPOSITS
+            + " WHERE " + COL_WISH_ID + " = " + TABLE_WISHES + "." + COL_ID + ")";
+
+    private static final String RECOUNT_IMAGES = "INSERT INTO " + TABLE_IMAGES
+            + " (" + COL_URI + ", " + COL_REF_COUNT + ") "
+            + "SELECT " + COL_IMAGE_URI + ", COUNT(*) FROM " + TABLE_WISHES
+            + " WHERE " + COL_IMAGE_URI + " LIKE 'file:%' GROUP BY " + COL_IMAGE_URI;
+
+    private static final int BACKUP_PAGE_SIZE = 500;
+
+    private final WishDatabase database;
+    private final File imageDir;
+
+    public WishStore(WishDatabase database) {
+        this.database = database;
+        this.imageDir = database.getImageDir();
+    }
+
+    public void runInTransaction(Runnable work) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            work.run();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // reads the file sizes on disk, so not from the main thread
+    public long getSizeBytes() {
+        return database.getSizeBytes();
+    }
+
+    public Wish insert(long listId, String name, long priceSatang, String imageUri) {
+        try (PerfMetrics.Section ignored = PerfMetrics.section("WishStore.insert")) {
+            SQLiteDatabase db = database.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            values.put(COL_NAME, name);
+            values.put(COL_PRICE_SATANG, priceSatang);
+            values.put(COL_IMAGE_URI, imageUri == null ? "" : imageUri);
+            values.put(COL_SAVED_SATANG, 0L);
+            values.put(COL_CREATED_AT, System.currentTimeMillis());
+            values.put(COL_LIST_ID, listId);
+
+            db.beginTransaction();
+            try {
+                long id = db.insertOrThrow(TABLE_WISHES, null, values);
+                if (ImageImporter.isImported(imageDir, imageUri)) {
+                    ContentValues image = new ContentValues();
+                    image.put(COL_URI, imageUri);
+                    db.insertWithOnConflict(TABLE_IMAGES, null, image, SQLiteDatabase.CONFLICT_IGNORE);
+                    db.execSQL(ADD_IMAGE_REF, new Object[]{1, imageUri});
+                }
+                db.setTransactionSuccessful();
+                return new Wish(id, name, priceSatang, imageUri, 0L);
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    // one transaction per batch; saved amounts become an opening ledger entry, as in the prefs migration
+    public void insertAll(long listId, List<Wish> wishes) {
+        runInTransaction(() -> {
+            for (Wish wish : wishes) {
+                Wish inserted = insert(listId, wish.getName(), wish.getPriceSatang(), wish.getImageUri());
+                if (wish.getSavedSatang() > 0) {
+                    addDeposit(inserted.getId(), wish.getSavedSatang());
+                }
+            }
+        });
+    }
+
+    public long count(long listId) {
+        return DatabaseUtils.queryNumEntries(database.getReadableDatabase(), TABLE_WISHES,
+                COL_LIST_ID + " = ?", new String[]{String.valueOf(listId)});
+    }
+
+    // ids are AUTOINCREMENT, so every row inserted later has a higher one, whichever list it goes to
+    public long lastWishId() {
+        return DatabaseUtils.longForQuery(database.getReadableDatabase(),
+                "SELECT IFNULL(MAX(" + COL_ID + "), 0) FROM " + TABLE_WISHES, null);
+    }
+
+    public List<NamedList> loadLists() {
+        SQLiteDatabase db = database.getReadableDatabase();
+        List<NamedList> lists = new ArrayList<>();
+        try (Cursor cursor = db.query(TABLE_LISTS, new String[]{COL_ID, COL_NAME},
+                null, null, null, null, COL_ID + " ASC")) {
+            while (cursor.moveToNext()) {
+                lists.add(new NamedList(cursor.getLong(0), cursor.getString(1)));
+            }
+        }
+        return lists;
+    }
+
+    public NamedList insertList(String name) {
+        ContentValues values = new ContentValues();
+        values.put(COL_NAME, name);
+        long id = database.getWritableDatabase().insertOrThrow(TABLE_LISTS, null, values);
+        return new NamedList(id, name);
+    }
+
+    public Wish find(long id) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.query(TABLE_WISHES, COLUMNS,
+                COL_ID + " = ?", new String[]{String.valueOf(id)},
+                null, null, null)) {
+            return cursor.moveToFirst() ? readWish(cursor) : null;
+        }
+    }
+
+    // the ledger row and the running total change together, so the total never needs a SUM()
+    public Deposit addDeposit(long wishId, long amountSatang) {
+        try (PerfMetrics.Section ignored = PerfMetrics.section("WishStore.addDeposit")) {
+            SQLiteDatabase db = database.getWritableDatabase();
+            long createdAt = System.currentTimeMillis();
+
+            db.beginTransaction();
+            try {
+                ContentValues values = new ContentValues();
+                values.put(COL_WISH_ID, wishId);
+                values.put(COL_AMOUNT_SATANG, amountSatang);
+                values.put(COL_CREATED_AT, createdAt);
+                long id = db.insertOrThrow(TABLE_DEPOSITS, null, values);
+
+                db.execSQL(ADD_TO_SAVED, new Object[]{amountSatang, wishId});
+                db.setTransactionSuccessful();
+                return new Deposit(id, wishId, amountSatang, createdAt);
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    // one ledger row per wish with a non-zero amount, all committed or none
+    public void addDeposits(long[] wishIds, long[] amountsSatang) {
+        runInTransaction(() -> {
+            for (int i = 0; i < wishIds.length; i++) {
+                if (amountsSatang[i] > 0) {
+                    addDeposit(wishIds[i], amountsSatang[i]);
+                }
+            }
+        });
+    }
+
+    // newest first; pass Long.MAX_VALUE for the first page, then the last id returned
+    public List<Deposit> loadDeposits(long wishId, long beforeId, int limit) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        List<Deposit> page = new ArrayList<>(limit);
+        try (Cursor cursor = db.query(TABLE_DEPOSITS, DEPOSIT_COLUMNS,
+                COL_WISH_ID + " = ? AND " + COL_ID + " < ?",
+                new String[]{String.valueOf(wishId), String.valueOf(beforeId)},
+                null, null, COL_ID + " DESC", String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                page.add(new Deposit(
+                        cursor.getLong(0),
+                        cursor.getLong(1),
+                        cursor.getLong(2),
+                        cursor.getLong(3)));
+            }
+        }
+        return page;
+    }
+
+    public DepositSummary summarizeDeposits(long wishId) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(*), SUM(" + COL_AMOUNT_SATANG + "), MIN("
+                        + COL_CREATED_AT + "), MAX(" + COL_CREATED_AT + ") FROM " + TABLE_DEPOSITS
+                        + " WHERE " + COL_WISH_ID + " = ?",
+                new String[]{String.valueOf(wishId)})) {
+            if (!cursor.moveToFirst() || cursor.getInt(0) == 0) {
+                return DepositSummary.EMPTY;
+            }
+            return new DepositSummary(cursor.getInt(0), cursor.getLong(1), cursor.getLong(2), cursor.getLong(3));
+        }
+    }
+
+    // returns the image uri when this was its last reference, so the caller can remove the file
+    public String delete(long id) {
+        try (PerfMetrics.Section ignored = PerfMetrics.section("WishStore.delete")) {
+            SQLiteDatabase db = database.getWritableDatabase();
+            String[] args = {String.valueOf(id)};
+
+            db.beginTransaction();
+            try {
+                String imageUri = null;
+                try (Cursor cursor = db.query(TABLE_WISHES, new String[]{COL_IMAGE_URI},
+                        COL_ID + " = ?", args, null, null, null)) {
+                    if (cursor.moveToFirst()) {
+                        imageUri = cursor.getString(0);
+                    }
+                }
+                db.delete(TABLE_WISHES, COL_ID + " = ?", args);
+
+                String orphan = null;
+                if (ImageImporter.isImported(imageDir, imageUri)) {
+                    db.execSQL(ADD_IMAGE_REF, new Object[]{-1, imageUri});
+                    if (imageRefCount(imageUri) <= 0) {
+                        db.delete(TABLE_IMAGES, COL_URI + " = ?", new String[]{imageUri});
+                        orphan = imageUri;
+                    }
+                }
+                db.setTransactionSuccessful();
+                return orphan;
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    public int imageRefCount(String imageUri) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.query(TABLE_IMAGES, new String[]{COL_REF_COUNT},
+                COL_URI + " = ?", new String[]{imageUri}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    // keyset paging within one list: rows are returned in insertion order, starting after afterId
+    public List<Wish> loadPage(long listId, long afterId, int limit) {
+        try (PerfMetrics.Section ignored = PerfMetrics.section("WishStore.loadPage")) {
+            SQLiteDatabase db = database.getReadableDatabase();
+            List<Wish> page = new ArrayList<>(limit);
+            try (Cursor cursor = db.query(TABLE_WISHES, COLUMNS,
+                    COL_LIST_ID + " = ? AND " + COL_ID + " > ?",
+                    new String[]{String.valueOf(listId), String.valueOf(afterId)},
+                    null, null, COL_ID + " ASC", String.valueOf(limit))) {
+                while (cursor.moveToNext()) {
+                    page.add(readWish(cursor));
+                }
+            }
+            return page;
+        }
+    }
+
+    // every list, wish and deposit in id order, a page at a time; imported images go out as their file name so
+    // a restore can point them at that device's image folder. All pages come from one transaction, so every
+    // deposit's wish is in the export. Writes wait until it ends, so out should be quick, e.g. a local file
+    public void exportAll(BackupRecords.Visitor out) throws IOException {
+        SQLiteDatabase db = database.getWritableDatabase();
+        // one snapshot of the WAL for every page; non-exclusive, so readers on other connections carry on
+        db.beginTransactionNonExclusive();
+        try {
+            for (NamedList list : loadLists()) {
+                out.list(list.getId(), list.getName());
+            }
+
+            String[] wishColumns = {COL_ID, COL_LIST_ID, COL_NAME, COL_PRICE_SATANG, COL_IMAGE_URI, COL_CREATED_AT};
+            long afterId = 0;
+            int rows;
+            do {
+                rows = 0;
+                try (Cursor cursor = db.query(TABLE_WISHES, wishColumns, COL_ID + " > ?",
+                        new String[]{String.valueOf(afterId)}, null, null, COL_ID + " ASC",
+                        String.valueOf(BACKUP_PAGE_SIZE))) {
+                    while (cursor.moveToNext()) {
+                        rows++;
+                        afterId = cursor.getLong(0);
+                        String imageUri = cursor.getString(4);
+                        String image = ImageImporter.isImported(imageDir, imageUri)
+                                ? Uri.parse(imageUri).getLastPathSegment() : imageUri;
+                        out.wish(afterId, cursor.getLong(1), cursor.getString(2), cursor.getLong(3), image,
+                                cursor.getLong(5));
+                    }
+                }
+            } while (rows == BACKUP_PAGE_SIZE);
+
+            afterId = 0;
+            do {
+                rows = 0;
+                try (Cursor cursor = db.query(TABLE_DEPOSITS, DEPOSIT_COLUMNS, COL_ID + " > ?",
+                        new String[]{String.valueOf(afterId)}, null, null, COL_ID + " ASC",
+                        String.valueOf(BACKUP_PAGE_SIZE))) {
+                    while (cursor.moveToNext()) {
+                        rows++;
+                        afterId = cursor.getLong(0);
+                        out.deposit(afterId, cursor.getLong(1), cursor.getLong(2), cursor.getLong(3));
+                    }
+                }
+            } while (rows == BACKUP_PAGE_SIZE);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // a backed-up name from the images folder, or a uri an import could also have brought in; a backup that was
+    // damaged or written by hand can hold anything else, which is restored as no image
+    private static String restoredImage(String image, Function<String, String> imageUri) {
+        if (ImageImporter.isImageName(image)) {
+            return imageUri.apply(image);
+        }
+        return WishTransfer.isImportableImage(image) ? image : "";
+    }
+
+    // replaces every list, wish and deposit with the backup in one transaction, so a restore that fails part way
+    // leaves the database as it was. imageUri turns a backed-up image file name into a uri on this device;
+    // saved totals and image reference counts are rebuilt from the restored rows. Returns the number of wishes
+    public int replaceAll(InputStream backup, Function<String, String> imageUri) throws IOException {
+        try (PerfMetrics.Section ignored = PerfMetrics.section("WishStore.replaceAll")) {
+            SQLiteDatabase db = database.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                db.delete(TABLE_DEPOSITS, null, null);
+                db.delete(TABLE_WISHES, null, null);
+                db.delete(TABLE_IMAGES, null, null);
+                db.delete(TABLE_LISTS, null, null);
+
+                ContentValues values = new ContentValues();
+                int count = BackupRecords.read(backup, new BackupRecords.Visitor() {
+                    @Override
+                    public void list(long id, String name) {
+                        values.clear();
+                        values.put(COL_ID, id);
+                        values.put(COL_NAME, name);
+                        db.insertOrThrow(TABLE_LISTS, null, values);
+                    }
+
+                    @Override
+                    public void wish(long id, long listId, String name, long priceSatang, String image,
+                                     long createdAt) {
+                        values.clear();
+                        values.put(COL_ID, id);
+                        values.put(COL_LIST_ID, listId);
+                        values.put(COL_NAME, name);
+                        values.put(COL_PRICE_SATANG, priceSatang);
+                        values.put(COL_IMAGE_URI, restoredImage(image, imageUri));
+                        values.put(COL_SAVED_SATANG, 0L);
+                        values.put(COL_CREATED_AT, createdAt);
+                        db.insertOrThrow(TABLE_WISHES, null, values);
+                    }
+
+                    // exportAll reads one snapshot, so a deposit whose wish is missing means a damaged backup
+                    @Override
+                    public void deposit(long id, long wishId, long amountSatang, long createdAt) {
+                        values.clear();
+                        values.put(COL_ID, id);
+                        values.put(COL_WISH_ID, wishId);
+                        values.put(COL_AMOUNT_SATANG, amountSatang);
+                        values.put(COL_CREATED_AT, createdAt);
+                        db.insertOrThrow(TABLE_DEPOSITS, null, values);
+                    }
+                });
+
+                db.execSQL(RECOUNT_SAVED);
+                db.execSQL(RECOUNT_IMAGES);
+                db.setTransactionSuccessful();
+                return count;
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    private static Wish readWish(Cursor cursor) {
+        return new Wish(
+                cursor.getLong(0),
+                cursor.getString(1),
+                cursor.getLong(2),
+                cursor.getString(3),
+                cursor.getLong(4));
+    }
+}
@@ -0,0 +1,272 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.DocumentsContract;
+
+import com.nightwithfireworks.wishlist.core.Wish;
+import com.nightwithfireworks.wishlist.core.WishCsvReader;
+import com.nightwithfireworks.wishlist.core.WishCsvWriter;
+import com.nightwithfireworks.wishlist.core.WishJsonReader;
+import com.nightwithfireworks.wishlist.core.WishJsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// streams wishes between the store and a SAF document one record at a time, committing imports in batches.
+// the document is read and written on this class's own thread; every store access goes through
+// WishRepository.runExclusive()
+public class WishTransfer {
+
+    public enum Format {
+        JSON("application/json"),
+        CSV("text/csv");
+
+        public final String mimeType;
+
+        Format(String mimeType) {
+            this.mimeType = mimeType;
+        }
+
+        static Format detect(ContentResolver resolver, Uri uri) {
+            String type = resolver.getType(uri);
+            if (type != null && (type.contains("csv") || type.contains("comma-separated"))) {
+                return CSV;
+            }
+            String path = uri.getLastPathSegment();
+            return path != null && path.toLowerCase().endsWith(".csv") ? CSV : JSON;
+        }
+    }
+
+    // all callbacks arrive on the main thread
+    public interface Callback {
+        void onProgress(int percent);
+
+        void onFinished(int count, boolean cancelled);
+
+        void onFailed(Exception e);
+    }
+
+    public static final class Task {
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+        public void cancel() {
+            cancelled.set(true);
+        }
+
+        boolean isCancelled() {
+            return cancelled.get();
+        }
+    }
+
+    private static final int BATCH_SIZE = 500;
+
+    private final ContentResolver resolver;
+    private final WishRepository repository;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public WishTransfer(Context context) {
+        resolver = context.getContentResolver();
+        repository = WishRepository.getInstance(context);
+    }
+
+    // imports into the list that is open when the import starts; batches already committed stay in place
+    // when the import is cancelled or fails part way
+    public Task importFrom(Uri source, Callback callback) {
+        Task task = new Task();
+        long listId = repository.getActiveListId();
+        executor.execute(() -> {
+            int imported = 0;
+            // nothing is loaded after a failure that comes before anything was written
+            long lastIdBefore = Long.MAX_VALUE;
+            try (AssetFileDescriptor fd = resolver.openAssetFileDescriptor(source, "r")) {
+                if (fd == null) {
+                    throw new FileNotFoundException(source.toString());
+                }
+                lastIdBefore = repository.runExclusive(WishStore::lastWishId);
+                long totalBytes = fd.getLength();
+                CountingInputStream counting = new CountingInputStream(fd.createInputStream());
+                BufferedReader reader = new BufferedReader(new InputStreamReader(counting, StandardCharsets.UTF_8));
+
+                Format format = Format.detect(resolver, source);
+                WishJsonReader json = format == Format.JSON ? new WishJsonReader(reader) : null;
+                WishCsvReader csv = format == Format.CSV ? new WishCsvReader(reader) : null;
+
+                List<Wish> batch = new ArrayList<>(BATCH_SIZE);
+                int lastPercent = -1;
+                while (!task.isCancelled() && (json != null ? json.hasNext() : csv.hasNext())) {
+                    Wish wish = json != null ? json.next() : csv.next();
+                    if (wish == null) {
+                        continue;
+                    }
+                    batch.add(withImportableImage(wish));
+                    if (batch.size() == BATCH_SIZE) {
+                        imported += commit(listId, batch);
+                        int percent = totalBytes > 0 ? (int) (counting.count * 100 / totalBytes) : -1;
+                        if (percent != lastPercent) {
+                            lastPercent = percent;
+                            mainHandler.post(() -> callback.onProgress(percent));
+                        }
+                    }
+                }
+                if (!task.isCancelled()) {
+                    imported += commit(listId, batch);
+                }
+                reader.close();
+
+                int count = imported;
+                long afterId = lastIdBefore;
+                mainHandler.post(() -> {
+                    repository.loadRowsAfter(listId, afterId);
+                    callback.onFinished(count, task.isCancelled());
+                });
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                long afterId = lastIdBefore;
+                mainHandler.post(() -> {
+                    repository.loadRowsAfter(listId, afterId);
+                    callback.onFailed(e);
+                });
+            }
+        });
+        return task;
+    }
+
+    // exports the open list; a cancelled export deletes the partial document rather than leave a truncated file behind
+    public Task exportTo(Uri target, Format format, Callback callback) {
+        Task task = new Task();
+        long listId = repository.getActiveListId();
+        executor.execute(() -> {
+            int exported = 0;
+            try (OutputStream stream = resolver.openOutputStream(target, "wt")) {
+                // an export must not silently miss writes that never reached the database
+                repository.flushWrites();
+                if (stream == null) {
+                    throw new FileNotFoundException(target.toString());
+                }
+                BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+                WishJsonWriter json = format == Format.JSON ? new WishJsonWriter(writer) : null;
+                WishCsvWriter csv = format == Format.CSV ? new WishCsvWriter(writer) : null;
+
+                long total = repository.runExclusive(store -> store.count(listId));
+                long afterId = 0;
+                int lastPercent = -1;
+                List<Wish> page;
+                do {
+                    long pageAfterId = afterId;
+                    page = repository.runExclusive(store -> store.loadPage(listId, pageAfterId, BATCH_SIZE));
+                    for (Wish wish : page) {
+                        if (json != null) {
+                            json.write(wish);
+                        } else {
+                            csv.write(wish);
+                        }
+                    }
+                    exported += page.size();
+                    if (!page.isEmpty()) {
+                        afterId = page.get(page.size() - 1).getId();
+                    }
+                    int percent = total > 0 ? (int) (exported * 100 / total) : 100;
+                    if (percent != lastPercent) {
+                        lastPercent = percent;
+                        mainHandler.post(() -> callback.onProgress(percent));
+                    }
+                } while (page.size() == BATCH_SIZE && !task.isCancelled());
+
+                if (json != null) {
+                    json.finish();
+                } else {
+                    csv.finish();
+                }
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                mainHandler.post(() -> callback.onFailed(e));
+                return;
+            }
+
+            if (task.isCancelled()) {
+                try {
+                    DocumentsContract.deleteDocument(resolver, target);
+                } catch (FileNotFoundException | RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+            int count = exported;
+            mainHandler.post(() -> callback.onFinished(count, task.isCancelled()));
+        });
+        return task;
+    }
+
+    // a document may name any uri; only pictures the app can still open (and must not sweep) survive the import
+    static Wish withImportableImage(Wish wish) {
+        if (!wish.hasImage() || isImportableImage(wish.getImageUri())) {
+            return wish;
+        }
+        return new Wish(wish.getId(), wish.getName(), wish.getPriceSatang(), "", wish.getSavedSatang());
+    }
+
+    static boolean isImportableImage(String imageUri) {
+        String scheme = Uri.parse(imageUri).getScheme();
+        return scheme != null && (scheme.equalsIgnoreCase(ContentResolver.SCHEME_CONTENT)
+                || scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"));
+    }
+
+    private int commit(long listId, List<Wish> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try (PerfMetrics.Section ignored = PerfMetrics.section("WishTransfer.commitBatch")) {
+            repository.runExclusive(store -> {
+                store.insertAll(listId, batch);
+                return null;
+            });
+        }
+        int size = batch.size();
+        batch.clear();
+        return size;
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.nightwithfireworks.wishlist;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// collects writes for a short window and commits each burst in a single transaction on the writer thread.
+// if the burst fails, each write is retried on its own so one bad write cannot sink the rest, and onFailure runs:
+// the repository already shows those changes, so it has to read back what actually reached the database.
+// onCommit runs on the writer thread after every burst that committed as a whole
+public class WriteScheduler {
+
+    private static final String TAG = "WriteScheduler";
+    private static final long COALESCE_DELAY_MS = 250;
+
+    private final WishStore store;
+    private final ScheduledExecutorService writer;
+    private final Runnable onFailure;
+    private final Runnable onCommit;
+    private final List<Runnable> pending = new ArrayList<>();
+    private boolean dirty = false;
+    private boolean flushing = false;
+    // writes that failed even on their own, since the scheduler was created
+    private long lost = 0;
+
+    public WriteScheduler(WishStore store, ScheduledExecutorService writer, Runnable onFailure, Runnable onCommit) {
+        this.store = store;
+        this.writer = writer;
+        this.onFailure = onFailure;
+        this.onCommit = onCommit;
+    }
+
+    public void schedule(Runnable write) {
+        synchronized (pending) {
+            pending.add(write);
+            if (dirty) {
+                return;
+            }
+            dirty = true;
+        }
+        writer.schedule(this::drain, COALESCE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // must run on the writer thread; reads call this first so they never see stale rows
+    public void drain() {
+        List<Runnable> batch;
+        synchronized (pending) {
+            if (!dirty) {
+                return;
+            }
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            dirty = false;
+            flushing = true;
+        }
+
+        boolean committed = false;
+        try (PerfMetrics.Section ignored = PerfMetrics.section("WriteScheduler.flush")) {
+            store.runInTransaction(() -> {
+                for (Runnable write : batch) {
+                    write.run();
+                }
+            });
+            committed = true;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "burst of " + batch.size() + " writes failed, retrying one at a time", e);
+            retryEach(batch);
+        } finally {
+            synchronized (pending) {
+                flushing = false;
+            }
+        }
+        PerfMetrics.increment("store.flushes");
+        PerfMetrics.setGauge("store.last_flush_size", batch.size());
+        if (committed) {
+            onCommit.run();
+        }
+    }
+
+    private void retryEach(List<Runnable> batch) {
+        int failed = 0;
+        for (Runnable write : batch) {
+            try {
+                store.runInTransaction(write);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "write lost", e);
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            synchronized (pending) {
+                lost += failed;
+            }
+            PerfMetrics.increment("store.writes_lost");
+        }
+        // even when every retry worked, callbacks from the rolled back attempt may have reached the main thread
+        onFailure.run();
+    }
+
+    // blocks until everything scheduled so far is on disk; throws if any of it could not be written
+    public void flushNow() {
+        long lostBefore;
+        synchronized (pending) {
+            if (!dirty && !flushing) {
+                return;
+            }
+            lostBefore = lost;
+        }
+        try {
+            writer.submit(this::drain).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Pending writes could not be saved", e.getCause());
+        }
+        synchronized (pending) {
+            if (lost > lostBefore) {
+                throw new IllegalStateException((lost - lostBefore) + " writes could not be saved");
+            }
+        }
+    }
+}
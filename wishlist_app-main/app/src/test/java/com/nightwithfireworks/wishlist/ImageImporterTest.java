@@ -0,0 +1,101 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.Context;
+import android.net.Uri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Only files directly inside the images folder are treated as imported: anything else a wish points at is never
+ * counted in the images table and never deleted, however its uri is spelled.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ImageImporterTest {
+
+    private Context context;
+    private File imageDir;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        imageDir = ImageImporter.imageDir(context);
+        imageDir.mkdirs();
+        ImageImporter.resetForTesting();
+        WishDatabase.resetForTesting();
+        context.deleteDatabase(WishDatabase.DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        ImageImporter.resetForTesting();
+        WishDatabase.resetForTesting();
+    }
+
+    @Test
+    public void onlyFilesInTheImageFolderAreImported() {
+        File filesDir = context.getFilesDir();
+
+        assertTrue(ImageImporter.isImported(imageDir, uri(new File(imageDir, "ab12.webp"))));
+        assertFalse(ImageImporter.isImported(imageDir, uri(new File(filesDir, "notes.txt"))));
+        assertFalse(ImageImporter.isImported(imageDir, uri(new File(imageDir, "cache/ab12.webp"))));
+        assertFalse(ImageImporter.isImported(imageDir,
+                "file://" + imageDir.getPath() + "/../../databases/" + WishDatabase.DATABASE_NAME));
+        assertFalse(ImageImporter.isImported(imageDir, "content://media/external/images/media/7"));
+        assertFalse(ImageImporter.isImported(imageDir, ""));
+        assertFalse(ImageImporter.isImported(imageDir, null));
+    }
+
+    @Test
+    public void sweepNeverDeletesOutsideTheImageFolder() throws IOException {
+        File inside = touch(new File(imageDir, "ab12.webp"));
+        File outside = touch(new File(context.getFilesDir(), "notes.txt"));
+        ImageImporter importer = ImageImporter.getInstance(context);
+        importer.markOrphan(uri(inside));
+        importer.markOrphan(uri(outside));
+        importer.markOrphan("file://" + imageDir.getPath() + "/../notes.txt");
+
+        importer.sweep(uri -> true);
+
+        assertFalse(inside.exists());
+        assertTrue(outside.exists());
+    }
+
+    @Test
+    public void storeOnlyCountsFilesInTheImageFolder() {
+        WishStore store = new WishStore(WishDatabase.getInstance(context));
+        String inside = uri(new File(imageDir, "ab12.webp"));
+        String outside = "file://" + imageDir.getPath() + "/../../databases/" + WishDatabase.DATABASE_NAME;
+
+        store.insert(WishDatabase.DEFAULT_LIST_ID, "Camera", 300_00, inside);
+        long id = store.insert(WishDatabase.DEFAULT_LIST_ID, "Bag", 900_00, outside).getId();
+
+        assertEquals(1, store.imageRefCount(inside));
+        assertEquals(0, store.imageRefCount(outside));
+        assertEquals(null, store.delete(id));
+    }
+
+    private static String uri(File file) {
+        return Uri.fromFile(file).toString();
+    }
+
+    private static File touch(File file) throws IOException {
+        file.getParentFile().mkdirs();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(1);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,91 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.nightwithfireworks.wishlist.core.Wish;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * First launch after the update: the wishlist_prefs payload moves into the new database, or, when it cannot be
+ * read to the end, stays in the prefs untouched while the app still opens.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LegacyMigrationTest {
+
+    private static final String GOOD = "[{\"name\":\"Camera\",\"price\":\"300\",\"savedAmount\":\"150\","
+            + "\"imageUri\":\"\"},{\"name\":\"กระเป๋า\",\"price\":\"900.50\",\"savedAmount\":\"0\"}]";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        WishDatabase.resetForTesting();
+        context.deleteDatabase(WishDatabase.DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        WishDatabase.resetForTesting();
+    }
+
+    @Test
+    public void readablePayloadMovesIntoTheDatabase() {
+        prefs().edit().putString(WishDatabase.LEGACY_KEY_WISHLIST, GOOD).commit();
+
+        List<Wish> wishes = open().loadPage(WishDatabase.DEFAULT_LIST_ID, 0, 10);
+
+        assertEquals(2, wishes.size());
+        assertEquals("Camera", wishes.get(0).getName());
+        assertEquals(150_00, wishes.get(0).getSavedSatang());
+        assertEquals(900_50, wishes.get(1).getPriceSatang());
+        assertNull(prefs().getString(WishDatabase.LEGACY_KEY_WISHLIST, null));
+    }
+
+    // cut off after two good records, as a write interrupted by the process dying leaves it
+    @Test
+    public void truncatedPayloadStaysInThePrefs() {
+        String json = GOOD.substring(0, GOOD.length() - 1) + ",{\"name\":\"Bicy";
+        prefs().edit().putString(WishDatabase.LEGACY_KEY_WISHLIST, json).commit();
+
+        WishStore store = open();
+
+        assertEquals(0, store.count(WishDatabase.DEFAULT_LIST_ID));
+        assertEquals(json, prefs().getString(WishDatabase.LEGACY_KEY_WISHLIST, null));
+    }
+
+    // a record the reader cannot convert throws a RuntimeException, which must not fail onCreate
+    @Test
+    public void unreadableRecordStaysInThePrefs() {
+        String json = GOOD.substring(0, GOOD.length() - 1) + ",{\"name\":\"Bicycle\",\"price\":{\"baht\":5}}]";
+        prefs().edit().putString(WishDatabase.LEGACY_KEY_WISHLIST, json).commit();
+
+        WishStore store = open();
+
+        assertEquals(0, store.count(WishDatabase.DEFAULT_LIST_ID));
+        assertEquals(json, prefs().getString(WishDatabase.LEGACY_KEY_WISHLIST, null));
+        // the app carries on with an empty, working database
+        store.insert(WishDatabase.DEFAULT_LIST_ID, "Bicycle", 500_00, "");
+        assertEquals(1, store.count(WishDatabase.DEFAULT_LIST_ID));
+    }
+
+    private WishStore open() {
+        return new WishStore(WishDatabase.getInstance(context));
+    }
+
+    private SharedPreferences prefs() {
+        return context.getSharedPreferences(WishDatabase.LEGACY_PREF_NAME, Context.MODE_PRIVATE);
+    }
+}
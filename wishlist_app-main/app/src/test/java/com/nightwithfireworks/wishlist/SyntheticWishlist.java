@@ -0,0 +1,68 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.Context;
+
+import com.nightwithfireworks.wishlist.core.Wish;
+import com.nightwithfireworks.wishlist.core.WishJsonWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// legacy wishlist_prefs payloads of any size, shaped like real lists: mixed Thai and English names,
+// imported images on most wishes, and saved amounts from nothing to complete
+final class SyntheticWishlist {
+
+    private static final String[] NAMES = {
+            "Camera", "กระเป๋าเดินทาง", "Headphones", "รองเท้าวิ่ง",
+            "Bicycle", "นาฬิกา", "Laptop", "ตั๋วเครื่องบินไปญี่ปุ่น"
+    };
+
+    private SyntheticWishlist() {
+    }
+
+    // the same seed always gives the same list, so runs are comparable
+    static List<Wish> generate(Context context, int count, long seed) {
+        Random random = new Random(seed);
+        File images = new File(context.getFilesDir(), ImageImporter.IMAGE_DIR);
+        List<Wish> wishes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = NAMES[random.nextInt(NAMES.length)] + " " + (i + 1);
+            long priceSatang = (100 + random.nextInt(100_000)) * 100L;
+            String imageUri = i % 5 == 4 ? "" : "file://" + new File(images, contentHash(random) + ".webp").getPath();
+            long savedSatang = i % 10 == 0 ? priceSatang : (long) (random.nextDouble() * priceSatang);
+            wishes.add(new Wish(0, name, priceSatang, imageUri, savedSatang));
+        }
+        return wishes;
+    }
+
+    static String legacyPayload(List<Wish> wishes) throws IOException {
+        StringWriter out = new StringWriter();
+        try (WishJsonWriter writer = new WishJsonWriter(out)) {
+            for (Wish wish : wishes) {
+                writer.write(wish);
+            }
+            writer.finish();
+        }
+        return out.toString();
+    }
+
+    // as a pre-database install left it; the first launch migrates it
+    static void install(Context context, List<Wish> wishes) throws IOException {
+        context.getSharedPreferences(WishDatabase.LEGACY_PREF_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putString(WishDatabase.LEGACY_KEY_WISHLIST, legacyPayload(wishes))
+                .commit();
+    }
+
+    private static String contentHash(Random random) {
+        StringBuilder hex = new StringBuilder(64);
+        for (int i = 0; i < 4; i++) {
+            hex.append(String.format("%016x", random.nextLong()));
+        }
+        return hex.toString();
+    }
+}
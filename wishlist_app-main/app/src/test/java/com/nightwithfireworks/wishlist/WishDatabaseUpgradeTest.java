@@ -0,0 +1,101 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.nightwithfireworks.wishlist.core.NamedList;
+import com.nightwithfireworks.wishlist.core.Wish;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Opens a populated version 3 database, as an existing install has it, and checks that the upgrade to named lists
+ * keeps every wish, deposit and image reference and puts the wishes in the default list.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WishDatabaseUpgradeTest {
+
+    private static final String IMAGE = "file:///data/user/0/com.nightwithfireworks.wishlist/files/images/a.webp";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        WishDatabase.resetForTesting();
+        writeVersion3(context.getDatabasePath(WishDatabase.DATABASE_NAME));
+    }
+
+    @After
+    public void tearDown() {
+        WishDatabase.resetForTesting();
+    }
+
+    @Test
+    public void upgradeFromPopulatedVersion3KeepsEveryRow() {
+        WishStore store = new WishStore(WishDatabase.getInstance(context));
+
+        List<NamedList> lists = store.loadLists();
+        assertEquals(1, lists.size());
+        assertEquals(WishDatabase.DEFAULT_LIST_ID, lists.get(0).getId());
+
+        List<Wish> wishes = store.loadPage(WishDatabase.DEFAULT_LIST_ID, 0, 10);
+        assertEquals(2, wishes.size());
+        assertEquals("Camera", wishes.get(0).getName());
+        assertEquals(150_00, wishes.get(0).getSavedSatang());
+        assertEquals("กระเป๋า", wishes.get(1).getName());
+        assertEquals(IMAGE, wishes.get(1).getImageUri());
+
+        assertEquals(2, store.summarizeDeposits(wishes.get(0).getId()).getCount());
+        assertEquals(1, store.imageRefCount(IMAGE));
+
+        // the upgraded table still takes new rows in the default list and in a new one
+        store.insert(WishDatabase.DEFAULT_LIST_ID, "Bicycle", 500_00, "");
+        NamedList trip = store.insertList("Trip");
+        store.insert(trip.getId(), "Tickets", 900_00, "");
+        assertEquals(3, store.count(WishDatabase.DEFAULT_LIST_ID));
+        assertEquals(1, store.count(trip.getId()));
+    }
+
+    // the schema and rows of version 3: satang amounts, the deposit ledger and image counts, but no lists
+    private static void writeVersion3(File file) {
+        file.getParentFile().mkdirs();
+        file.delete();
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null);
+        try {
+            db.execSQL("CREATE TABLE wishes (_id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, "
+                    + "price_satang INTEGER NOT NULL, image_uri TEXT NOT NULL DEFAULT '', "
+                    + "saved_satang INTEGER NOT NULL DEFAULT 0, created_at INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX idx_wishes_price ON wishes (price_satang)");
+            db.execSQL("CREATE INDEX idx_wishes_saved ON wishes (saved_satang)");
+            db.execSQL("CREATE INDEX idx_wishes_created_at ON wishes (created_at)");
+            db.execSQL("CREATE TABLE deposits (_id INTEGER PRIMARY KEY AUTOINCREMENT, wish_id INTEGER NOT NULL "
+                    + "REFERENCES wishes(_id) ON DELETE CASCADE, amount_satang INTEGER NOT NULL, "
+                    + "created_at INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX idx_deposits_wish ON deposits (wish_id, _id)");
+            db.execSQL("CREATE TABLE images (uri TEXT PRIMARY KEY, ref_count INTEGER NOT NULL DEFAULT 0)");
+
+            db.execSQL("INSERT INTO wishes (name, price_satang, image_uri, saved_satang, created_at) "
+                    + "VALUES ('Camera', 30000, '', 15000, 1000)");
+            db.execSQL("INSERT INTO wishes (name, price_satang, image_uri, saved_satang, created_at) "
+                    + "VALUES ('กระเป๋า', 90000, '" + IMAGE + "', 0, 2000)");
+            db.execSQL("INSERT INTO deposits (wish_id, amount_satang, created_at) VALUES (1, 10000, 1000)");
+            db.execSQL("INSERT INTO deposits (wish_id, amount_satang, created_at) VALUES (1, 5000, 3000)");
+            db.execSQL("INSERT INTO images (uri, ref_count) VALUES ('" + IMAGE + "', 1)");
+            db.setVersion(3);
+        } finally {
+            db.close();
+        }
+    }
+}
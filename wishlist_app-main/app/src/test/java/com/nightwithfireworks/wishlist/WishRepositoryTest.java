@@ -0,0 +1,171 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.Context;
+import android.os.Looper;
+
+import com.nightwithfireworks.wishlist.core.PortfolioTotals;
+import com.nightwithfireworks.wishlist.core.Wish;
+import com.nightwithfireworks.wishlist.core.WishSort;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * The loaded list against rows written straight to the store, the way a bulk import writes them, the bulk work
+ * itself against the writes the repository queues, and the startup cards against both.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WishRepositoryTest {
+
+    private Context context;
+    private WishStore store;
+    private WishRepository repository;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        WishRepository.resetForTesting();
+        WishDatabase.resetForTesting();
+        context.deleteDatabase(WishDatabase.DATABASE_NAME);
+        new StartupSnapshot(context).delete();
+        store = new WishStore(WishDatabase.getInstance(context));
+        repository = WishRepository.getInstance(context);
+    }
+
+    @After
+    public void tearDown() {
+        WishRepository.resetForTesting();
+        WishDatabase.resetForTesting();
+    }
+
+    // a wish added while the import runs gets an id above the first import batch
+    @Test
+    public void rowsAfterAnIdIncludeEveryImportedBatch() {
+        store.insertAll(WishDatabase.DEFAULT_LIST_ID, wishes("Open", 3));
+        repository.load();
+        await(repository::isFullyLoaded);
+
+        long lastIdBefore = store.lastWishId();
+        store.insertAll(WishDatabase.DEFAULT_LIST_ID, wishes("First batch", 2));
+        repository.add("Added meanwhile", 50_00, "");
+        repository.flushWrites();
+        await(() -> repository.size() == 4);
+        store.insertAll(WishDatabase.DEFAULT_LIST_ID, wishes("Second batch", 2));
+
+        repository.loadRowsAfter(WishDatabase.DEFAULT_LIST_ID, lastIdBefore);
+        await(() -> repository.size() >= 8);
+        repository.flushWrites();
+        shadowOf(Looper.getMainLooper()).idle();
+
+        Set<Long> ids = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        for (Wish wish : repository.getWishes()) {
+            ids.add(wish.getId());
+            names.add(wish.getName());
+        }
+        assertEquals(8, repository.size());
+        assertEquals(8, ids.size());
+        assertTrue(names.contains("First batch 1"));
+        assertTrue(names.contains("Added meanwhile"));
+        assertTrue(names.contains("Second batch 1"));
+    }
+
+    // bulk work sees every write queued before it, like the reads on the db thread do
+    @Test
+    public void runExclusiveRunsAfterQueuedWrites() throws Exception {
+        repository.add("Queued", 10_00, "");
+
+        long[] count = new long[1];
+        Thread worker = new Thread(() -> {
+            try {
+                count[0] = repository.runExclusive(s -> s.count(WishDatabase.DEFAULT_LIST_ID));
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        worker.start();
+        worker.join(10_000);
+
+        assertEquals(1, count[0]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void runExclusiveRefusesTheMainThread() throws IOException {
+        repository.runExclusive(WishStore::lastWishId);
+    }
+
+    // the startup cards follow committed writes without waiting for the app to leave the foreground
+    @Test
+    public void committedWritesRefreshTheStartupSnapshot() {
+        store.insertAll(WishDatabase.DEFAULT_LIST_ID, wishes("Open", 3));
+        repository.load();
+        await(repository::isFullyLoaded);
+        long id = repository.getWishes().get(1).getId();
+
+        repository.addDeposit(id, 40_00);
+        repository.flushWrites();
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(5));
+        await(() -> savedOf(new StartupSnapshot(context).read(), id) == 40_00);
+    }
+
+    // cards saved in the order wishes were added stand in for that order only
+    @Test
+    public void startupCardsOnlyStandInForTheirOwnSort() {
+        List<Wish> cards = wishes("Card", 2);
+        new StartupSnapshot(context).write(WishDatabase.DEFAULT_LIST_ID, WishSort.ADDED, cards,
+                new PortfolioTotals(2, 0, 200_00, 0, 200_00));
+
+        repository.load();
+
+        assertEquals(cards, repository.query(WishSort.ADDED, -1));
+        assertTrue(repository.query(WishSort.PRICE, -1).isEmpty());
+        assertTrue(repository.query(WishSort.ADDED, 100_00).isEmpty());
+    }
+
+    private static long savedOf(StartupSnapshot.Contents contents, long id) {
+        for (Wish wish : contents.wishes) {
+            if (wish.getId() == id) {
+                return wish.getSavedSatang();
+            }
+        }
+        return -1;
+    }
+
+    private static List<Wish> wishes(String prefix, int count) {
+        List<Wish> wishes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            wishes.add(new Wish(0, prefix + " " + i, 100_00, "", 0));
+        }
+        return wishes;
+    }
+
+    // the db thread posts its results to the main looper, which only runs when the test idles it
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            shadowOf(Looper.getMainLooper()).idle();
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.Context;
+import android.net.Uri;
+
+import com.nightwithfireworks.wishlist.core.BackupRecords;
+import com.nightwithfireworks.wishlist.core.Wish;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A restore only ever points wishes at the images folder or at uris an import would accept, whatever the backup
+ * it reads holds.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WishStoreTest {
+
+    private File imageDir;
+    private WishStore store;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.getApplication();
+        WishDatabase.resetForTesting();
+        context.deleteDatabase(WishDatabase.DATABASE_NAME);
+        imageDir = ImageImporter.imageDir(context);
+        store = new WishStore(WishDatabase.getInstance(context));
+    }
+
+    @After
+    public void tearDown() {
+        WishDatabase.resetForTesting();
+    }
+
+    @Test
+    public void restoredImagesStayInTheImageFolder() throws IOException {
+        String[] images = {"ab12.webp", "", "content://media/external/images/7", "https://example.com/a.jpg",
+                "../shared_prefs/wishlist_prefs.xml", "sub/ab12.webp", ".hidden", "file:///sdcard/b.jpg",
+                "javascript:alert(1)"};
+        String[] restored = {Uri.fromFile(new File(imageDir, "ab12.webp")).toString(), "",
+                "content://media/external/images/7", "https://example.com/a.jpg", "", "", "", "", ""};
+
+        ByteArrayOutputStream backup = new ByteArrayOutputStream();
+        BackupRecords.Writer records = new BackupRecords.Writer(backup);
+        records.list(WishDatabase.DEFAULT_LIST_ID, "Wishes");
+        for (int i = 0; i < images.length; i++) {
+            records.wish(i + 1, WishDatabase.DEFAULT_LIST_ID, "Wish " + i, 100_00, images[i], 0);
+        }
+        records.finish();
+
+        store.replaceAll(new ByteArrayInputStream(backup.toByteArray()),
+                name -> Uri.fromFile(new File(imageDir, name)).toString());
+
+        List<Wish> wishes = store.loadPage(WishDatabase.DEFAULT_LIST_ID, 0, images.length);
+        assertEquals(images.length, wishes.size());
+        for (int i = 0; i < images.length; i++) {
+            assertEquals(images[i], restored[i], wishes.get(i).getImageUri());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.nightwithfireworks.wishlist;
+
+import com.nightwithfireworks.wishlist.core.Wish;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * An imported document can name any uri for a picture; only ones that point outside the app's own files survive.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WishTransferTest {
+
+    @Test
+    public void contentAndWebImagesAreKept() {
+        for (String uri : new String[]{"content://media/external/images/1", "https://example.com/a.jpg",
+                "HTTP://example.com/b.png", ""}) {
+            Wish wish = new Wish(0, "Bike", 100_00, uri, 0);
+            assertSame(uri, wish, WishTransfer.withImportableImage(wish));
+        }
+    }
+
+    @Test
+    public void otherImagesAreDropped() {
+        for (String uri : new String[]{"file:///data/user/0/com.nightwithfireworks.wishlist/files/images/a.webp",
+                "FILE:///sdcard/b.jpg", "/data/data/c.jpg", "javascript:alert(1)", "android.resource://x/1"}) {
+            Wish imported = WishTransfer.withImportableImage(new Wish(0, "Bike", 100_00, uri, 25_00));
+            assertEquals(uri, "", imported.getImageUri());
+            assertEquals("Bike", imported.getName());
+            assertEquals(100_00, imported.getPriceSatang());
+            assertEquals(25_00, imported.getSavedSatang());
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.nightwithfireworks.wishlist;
+
+import android.content.Context;
+import android.os.Looper;
+
+import com.nightwithfireworks.wishlist.core.Wish;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Opens synthetic lists of 100, 1k and 10k wishes the way MainActivity.onCreate does, through the repository's
+ * load(), and holds load time, save time and retained heap per wish to the ceilings in scale_budgets.properties.
+ * Inflating the screen is not part of the numbers. Every run also writes what it measured to
+ * build/reports/scale/measurements.properties, which is where the ceilings are calibrated from.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+public class WishlistScaleTest {
+
+    private static final long SEED = 20260101L;
+    private static final long TIMEOUT_MS = 60_000;
+    private static final int SAVES = 50;
+    // retained heap is the median of this many load and release cycles
+    private static final int MEMORY_RUNS = 5;
+    private static final int MAX_GC_ROUNDS = 10;
+
+    private static final File REPORT = new File("build/reports/scale/measurements.properties");
+
+    private static Properties budgets;
+
+    private final int size;
+    private Context context;
+    private WishRepository repository;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "{0} wishes")
+    public static List<Object[]> sizes() {
+        return Arrays.asList(new Object[][]{{100}, {1_000}, {10_000}});
+    }
+
+    public WishlistScaleTest(int size) {
+        this.size = size;
+    }
+
+    @BeforeClass
+    public static void loadBudgets() throws IOException {
+        budgets = new Properties();
+        try (InputStream in = WishlistScaleTest.class.getResourceAsStream("/scale_budgets.properties")) {
+            assertNotNull("scale_budgets.properties missing from test resources", in);
+            budgets.load(in);
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        context = RuntimeEnvironment.getApplication();
+        WishRepository.resetForTesting();
+        WishDatabase.resetForTesting();
+        ImageImporter.resetForTesting();
+        context.deleteDatabase(WishDatabase.DATABASE_NAME);
+        new StartupSnapshot(context).delete();
+        SyntheticWishlist.install(context, SyntheticWishlist.generate(context, size, SEED));
+    }
+
+    @After
+    public void tearDown() {
+        close();
+        WishDatabase.resetForTesting();
+        ImageImporter.resetForTesting();
+    }
+
+    // first launch after the update: migrates the prefs payload, then pages every wish in
+    @Test
+    public void firstLaunchLoadsEveryWishWithinBudget() throws InterruptedException, IOException {
+        long start = System.nanoTime();
+        launch();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(size, repository.size());
+        assertWithinBudget("launch_ms", elapsedMs);
+    }
+
+    // every later launch: the startup snapshot is on screen at once, the list pages in from the database
+    @Test
+    public void relaunchLoadsEveryWishWithinBudget() throws InterruptedException, IOException {
+        launch();
+        close();
+
+        long start = System.nanoTime();
+        launch();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(size, repository.size());
+        assertWithinBudget("relaunch_ms", elapsedMs);
+    }
+
+    // a deposit as the detail screen makes it, committed before the next one; the average per save
+    @Test
+    public void depositSaveWithinBudget() throws InterruptedException, IOException {
+        launch();
+        List<Wish> wishes = repository.getWishes();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < SAVES; i++) {
+            repository.addDeposit(wishes.get(i * wishes.size() / SAVES).getId(), 100);
+            repository.flushWrites();
+        }
+        long perSaveMs = (System.nanoTime() - start) / 1_000_000 / SAVES;
+
+        assertWithinBudget("save_ms", perSaveMs);
+    }
+
+    // heap held by a fully loaded list, measured as what is freed when the app lets it go. The released heap is
+    // only read once the repository has actually been collected; one cycle still moves with whatever else the JVM
+    // happens to collect, so the middle of several is what is held to the ceiling
+    @Test
+    public void retainedMemoryPerWishWithinBudget() throws InterruptedException, IOException {
+        long[] perWish = new long[MEMORY_RUNS];
+        for (int i = 0; i < MEMORY_RUNS; i++) {
+            launch();
+            WeakReference<WishRepository> released = new WeakReference<>(repository);
+            long loaded = usedHeapAfterGc();
+            close();
+            awaitCollected(released);
+            long unloaded = usedHeapAfterGc();
+            perWish[i] = Math.max(0, loaded - unloaded) / size;
+        }
+        Arrays.sort(perWish);
+
+        assertWithinBudget("retained_bytes_per_wish", perWish[MEMORY_RUNS / 2]);
+    }
+
+    // done once every wish and the list names are in, so nothing is left queued for the main thread
+    private void launch() throws InterruptedException {
+        WishRepository opened = WishRepository.getInstance(context);
+        repository = opened;
+        opened.load();
+        awaitMain(() -> opened.isFullyLoaded() && !opened.getLists().isEmpty());
+    }
+
+    // like the process going away: pending writes and the startup snapshot are flushed, then the state is dropped
+    private void close() {
+        if (repository == null) {
+            return;
+        }
+        repository.flush();
+        repository = null;
+        shadowOf(Looper.getMainLooper()).idle();
+        WishRepository.resetForTesting();
+    }
+
+    private void assertWithinBudget(String metric, long value) throws IOException {
+        String key = metric + "." + size;
+        report(key, value);
+        String budget = budgets.getProperty(key);
+        assertNotNull("no budget for " + key, budget);
+        assertTrue(key + " = " + value + " exceeds budget " + budget, value <= Long.parseLong(budget));
+    }
+
+    // statics do not reliably survive from one size to the next under the Robolectric runner, so every value goes
+    // into the file as it is measured
+    private static synchronized void report(String key, long value) throws IOException {
+        Properties measurements = new Properties();
+        if (REPORT.exists()) {
+            try (InputStream in = new FileInputStream(REPORT)) {
+                measurements.load(in);
+            }
+        } else {
+            REPORT.getParentFile().mkdirs();
+        }
+        measurements.setProperty(key, String.valueOf(value));
+        try (OutputStream out = new FileOutputStream(REPORT)) {
+            measurements.store(out, "WishlistScaleTest, " + System.getProperty("java.vm.name") + " "
+                    + System.getProperty("java.version") + ", " + Runtime.getRuntime().availableProcessors()
+                    + " cpus");
+        }
+    }
+
+    private static void awaitMain(BooleanSupplier done) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (true) {
+            shadowOf(Looper.getMainLooper()).idle();
+            if (done.getAsBoolean()) {
+                return;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                fail("timed out waiting for the main thread");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    // a repository still reachable after close() would be a leak, and would hide the memory it holds
+    private static void awaitCollected(WeakReference<?> reference) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (reference.get() != null) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("the closed repository is still reachable");
+            }
+            shadowOf(Looper.getMainLooper()).idle();
+            System.gc();
+            Thread.sleep(10);
+        }
+    }
+
+    // collects until a round frees nothing more, so garbage from the previous step does not count as held
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < MAX_GC_ROUNDS; i++) {
+            System.gc();
+            System.runFinalization();
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) {
+                return now;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,30 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+final class BenchmarkData {
+
+    private static final String[] NAMES = {
+            "PS5", "Nintendo Switch", "กระเป๋าเดินทาง", "รองเท้าวิ่ง", "iPad Air",
+            "ตั๋วเครื่องบินไปญี่ปุ่น", "Mechanical Keyboard", "หูฟังไร้สาย"
+    };
+
+    private BenchmarkData() {
+    }
+
+    static List<Wish> wishes(int count) {
+        Random random = new Random(42);
+        List<Wish> wishes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long price = (500 + random.nextInt(50000)) * 100L;
+            long saved = random.nextInt(4) == 0 ? 0 : (long) (price * random.nextDouble());
+            String imageUri = random.nextBoolean()
+                    ? "content://com.android.providers.media.documents/document/image%3A" + (1000 + i)
+                    : "";
+            wishes.add(new Wish(i + 1, NAMES[i % NAMES.length] + " #" + i, price, imageUri, saved));
+        }
+        return wishes;
+    }
+}
@@ -0,0 +1,74 @@
+package com.nightwithfireworks.wishlist.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameSearchBenchmark {
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    // a common Thai word, a rare exact name, a Latin word and a single character
+    @Param({"เดินทาง", "#4321", "keyboard", "ร"})
+    public String query;
+
+    private NameSearchIndex index;
+    private String[] names;
+    private Wish extra;
+
+    @Setup
+    public void setUp() {
+        List<Wish> wishes = BenchmarkData.wishes(size);
+        index = new NameSearchIndex();
+        names = new String[wishes.size()];
+        for (int i = 0; i < names.length; i++) {
+            index.add(wishes.get(i).getId(), wishes.get(i).getName());
+            names[i] = NameSearchIndex.normalize(wishes.get(i).getName());
+        }
+        extra = new Wish(size + 1, "หูฟังไร้สาย #new", 100, "", 0);
+    }
+
+    @Benchmark
+    public long[] search() {
+        return index.search(query);
+    }
+
+    // one card added and deleted again, as the add dialog and the detail screen do
+    @Benchmark
+    public int addAndRemove() {
+        index.add(extra.getId(), extra.getName());
+        index.remove(extra.getId());
+        return index.size();
+    }
+
+    // what search replaces: a contains() over every name
+    @Benchmark
+    public int scan() {
+        String normalized = NameSearchIndex.normalize(query);
+        int count = 0;
+        for (String name : names) {
+            if (name.contains(normalized)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,66 @@
+package com.nightwithfireworks.wishlist.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgressBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private Wish[] wishes;
+    private SortedWishIndex remainingIndex;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<Wish> generated = BenchmarkData.wishes(size);
+        wishes = generated.toArray(new Wish[0]);
+        remainingIndex = new SortedWishIndex(WishSort.REMAINING);
+        for (Wish wish : wishes) {
+            remainingIndex.add(wish);
+        }
+    }
+
+    // what the detail screen and the strip compute for every wish
+    @Benchmark
+    public long progressAll() {
+        long total = 0;
+        for (Wish wish : wishes) {
+            total += Financials.progressBasisPoints(wish.getPriceSatang(), wish.getSavedSatang());
+            total += Financials.growthStage(wish.getPriceSatang(), wish.getSavedSatang());
+        }
+        return total;
+    }
+
+    // one deposit applied to a wish and re-keyed in the remaining-amount index
+    @Benchmark
+    public Wish depositAndReindex() {
+        int i = next;
+        next = (next + 1) % wishes.length;
+
+        Wish before = wishes[i];
+        Wish after = before.withSavedSatang(before.getSavedSatang() + 100);
+        remainingIndex.replace(before, after);
+        wishes[i] = after;
+        return after;
+    }
+}
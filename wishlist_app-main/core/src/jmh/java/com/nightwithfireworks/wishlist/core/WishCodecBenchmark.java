@@ -0,0 +1,93 @@
+package com.nightwithfireworks.wishlist.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WishCodecBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private List<Wish> wishes;
+    private String json;
+    private String csv;
+
+    @Setup
+    public void setUp() throws IOException {
+        wishes = BenchmarkData.wishes(size);
+        json = encode(wishes);
+        csv = encodeCsv(wishes);
+    }
+
+    @Benchmark
+    public String save() throws IOException {
+        return encode(wishes);
+    }
+
+    @Benchmark
+    public void load(Blackhole blackhole) throws IOException {
+        try (WishJsonReader reader = new WishJsonReader(new StringReader(json))) {
+            while (reader.hasNext()) {
+                blackhole.consume(reader.next());
+            }
+        }
+    }
+
+    @Benchmark
+    public String saveCsv() throws IOException {
+        return encodeCsv(wishes);
+    }
+
+    @Benchmark
+    public void loadCsv(Blackhole blackhole) throws IOException {
+        try (WishCsvReader reader = new WishCsvReader(new StringReader(csv))) {
+            while (reader.hasNext()) {
+                blackhole.consume(reader.next());
+            }
+        }
+    }
+
+    private static String encodeCsv(List<Wish> wishes) throws IOException {
+        StringWriter out = new StringWriter();
+        try (WishCsvWriter writer = new WishCsvWriter(out)) {
+            for (Wish wish : wishes) {
+                writer.write(wish);
+            }
+            writer.finish();
+        }
+        return out.toString();
+    }
+
+    private static String encode(List<Wish> wishes) throws IOException {
+        StringWriter out = new StringWriter();
+        try (WishJsonWriter writer = new WishJsonWriter(out)) {
+            for (Wish wish : wishes) {
+                writer.write(wish);
+            }
+            writer.finish();
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,112 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// one backup: the chunk ids of the data stream and of each image file, in order. A few KiB of text even for
+// thousands of wishes; the chunks themselves are shared between every backup that needs them
+public class BackupManifest {
+
+    private static final String HEADER = "wishlist-backup 1";
+
+    private final long createdAt;
+    private final List<String> dataChunks;
+    private final Map<String, List<String>> images;
+
+    public BackupManifest(long createdAt, List<String> dataChunks, Map<String, List<String>> images) {
+        this.createdAt = createdAt;
+        this.dataChunks = dataChunks;
+        this.images = images;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public List<String> getDataChunks() {
+        return dataChunks;
+    }
+
+    // image file name to its chunk ids
+    public Map<String, List<String>> getImages() {
+        return Collections.unmodifiableMap(images);
+    }
+
+    public Set<String> allChunks() {
+        Set<String> all = new HashSet<>(dataChunks);
+        for (List<String> chunks : images.values()) {
+            all.addAll(chunks);
+        }
+        return all;
+    }
+
+    public void write(Writer out) throws IOException {
+        out.write(HEADER + "\n");
+        out.write("created " + createdAt + "\n");
+        writeSection(out, "data", dataChunks);
+        for (Map.Entry<String, List<String>> image : images.entrySet()) {
+            writeSection(out, "image " + image.getKey(), image.getValue());
+        }
+        out.flush();
+    }
+
+    public static BackupManifest read(Reader in) throws IOException {
+        BufferedReader reader = new BufferedReader(in);
+        if (!HEADER.equals(reader.readLine())) {
+            throw new IOException("Not a wishlist backup manifest");
+        }
+        long createdAt = Long.parseLong(field(reader.readLine(), "created "));
+        List<String> dataChunks = null;
+        Map<String, List<String>> images = new LinkedHashMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int space = line.lastIndexOf(' ');
+            if (space < 0) {
+                throw new IOException("Bad manifest line: " + line);
+            }
+            String section = line.substring(0, space);
+            int count = Integer.parseInt(line.substring(space + 1));
+            List<String> chunks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String id = reader.readLine();
+                if (id == null) {
+                    throw new IOException("Manifest ends inside " + section);
+                }
+                chunks.add(id);
+            }
+            if (section.equals("data")) {
+                dataChunks = chunks;
+            } else {
+                images.put(field(section, "image "), chunks);
+            }
+        }
+        if (dataChunks == null) {
+            throw new IOException("Manifest has no data section");
+        }
+        return new BackupManifest(createdAt, dataChunks, images);
+    }
+
+    private static void writeSection(Writer out, String section, List<String> chunks) throws IOException {
+        out.write(section + " " + chunks.size() + "\n");
+        for (String id : chunks) {
+            out.write(id);
+            out.write('\n');
+        }
+    }
+
+    private static String field(String line, String prefix) throws IOException {
+        if (line == null || !line.startsWith(prefix)) {
+            throw new IOException("Expected " + prefix.trim() + " in manifest");
+        }
+        return line.substring(prefix.length());
+    }
+}
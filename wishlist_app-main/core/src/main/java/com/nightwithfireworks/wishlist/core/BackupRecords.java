@@ -0,0 +1,110 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// the database as a flat stream of lists, then wishes, then deposits, each in id order. Saved totals are not
+// written: restore adds them up from the deposits, so the two can never disagree.
+// rows keep their place in the stream between backups, so unchanged rows produce unchanged chunks
+public final class BackupRecords {
+
+    public interface Visitor {
+        void list(long id, String name) throws IOException;
+
+        // image is a file name for imported images, otherwise the uri as stored
+        void wish(long id, long listId, String name, long priceSatang, String image, long createdAt)
+                throws IOException;
+
+        void deposit(long id, long wishId, long amountSatang, long createdAt) throws IOException;
+    }
+
+    private static final int MAGIC = 0x57534231;
+    private static final int LIST = 1;
+    private static final int WISH = 2;
+    private static final int DEPOSIT = 3;
+    private static final int END = 0;
+
+    private BackupRecords() {
+    }
+
+    public static final class Writer implements Visitor {
+        private final DataOutputStream out;
+        private int wishCount = 0;
+
+        public Writer(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(out);
+            this.out.writeInt(MAGIC);
+        }
+
+        @Override
+        public void list(long id, String name) throws IOException {
+            out.writeByte(LIST);
+            out.writeLong(id);
+            out.writeUTF(name);
+        }
+
+        @Override
+        public void wish(long id, long listId, String name, long priceSatang, String image, long createdAt)
+                throws IOException {
+            out.writeByte(WISH);
+            out.writeLong(id);
+            out.writeLong(listId);
+            out.writeUTF(name);
+            out.writeLong(priceSatang);
+            out.writeUTF(image == null ? "" : image);
+            out.writeLong(createdAt);
+            wishCount++;
+        }
+
+        @Override
+        public void deposit(long id, long wishId, long amountSatang, long createdAt) throws IOException {
+            out.writeByte(DEPOSIT);
+            out.writeLong(id);
+            out.writeLong(wishId);
+            out.writeLong(amountSatang);
+            out.writeLong(createdAt);
+        }
+
+        public int getWishCount() {
+            return wishCount;
+        }
+
+        // the end marker tells a complete stream from a truncated one
+        public void finish() throws IOException {
+            out.writeByte(END);
+            out.flush();
+        }
+    }
+
+    // hands each record to visitor as it is read; returns the number of wishes
+    public static int read(InputStream in, Visitor visitor) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a wishlist backup");
+        }
+        int wishCount = 0;
+        while (true) {
+            int type = data.readByte();
+            switch (type) {
+                case LIST:
+                    visitor.list(data.readLong(), data.readUTF());
+                    break;
+                case WISH:
+                    visitor.wish(data.readLong(), data.readLong(), data.readUTF(), data.readLong(),
+                            data.readUTF(), data.readLong());
+                    wishCount++;
+                    break;
+                case DEPOSIT:
+                    visitor.deposit(data.readLong(), data.readLong(), data.readLong(), data.readLong());
+                    break;
+                case END:
+                    return wishCount;
+                default:
+                    throw new IOException("Unknown backup record " + type);
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+
+// reads a chunked stream back one chunk at a time, so memory stays at one chunk whatever the stream's size.
+// each chunk is checked against its id as it ends, so a damaged chunk fails the read instead of restoring garbage
+public class ChunkReader extends InputStream {
+
+    private final List<String> ids;
+    private final ChunkStore store;
+    private final MessageDigest digest = ChunkWriter.sha256();
+    private final byte[] single = new byte[1];
+    private int next = 0;
+    private InputStream current;
+
+    public ChunkReader(List<String> ids, ChunkStore store) {
+        this.ids = ids;
+        this.store = store;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int count) throws IOException {
+        if (count == 0) {
+            return 0;
+        }
+        while (true) {
+            if (current == null) {
+                if (next == ids.size()) {
+                    return -1;
+                }
+                current = new InflaterInputStream(store.open(ids.get(next)));
+            }
+            int read = current.read(bytes, offset, count);
+            if (read != -1) {
+                digest.update(bytes, offset, read);
+                return read;
+            }
+            endChunk();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        next = ids.size();
+    }
+
+    private void endChunk() throws IOException {
+        current.close();
+        current = null;
+        String id = ids.get(next++);
+        if (!ChunkWriter.hex(digest.digest()).equals(id)) {
+            throw new IOException("Backup chunk " + id + " is damaged");
+        }
+    }
+}
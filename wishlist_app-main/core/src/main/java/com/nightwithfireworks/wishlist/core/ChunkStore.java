@@ -0,0 +1,15 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// where backup chunks live, keyed by the SHA-256 of their uncompressed bytes; a chunk is written once and never changed
+public interface ChunkStore {
+
+    boolean contains(String id);
+
+    // compressed bytes of one chunk; the store must not keep the array
+    void put(String id, byte[] compressed, int length) throws IOException;
+
+    InputStream open(String id) throws IOException;
+}
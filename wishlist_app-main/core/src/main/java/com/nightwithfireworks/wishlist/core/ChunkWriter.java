@@ -0,0 +1,137 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+// cuts a byte stream into content-defined chunks and stores the ones the store does not have yet. Cut points
+// come from a rolling hash over the last few bytes, so an edit only changes the chunks around it; fixed-size
+// chunks would shift every chunk after the first inserted byte
+public class ChunkWriter extends OutputStream {
+
+    static final int MIN_SIZE = 2 * 1024;
+    static final int MAX_SIZE = 64 * 1024;
+    // a cut where the low 13 bits are zero, about every 8 KiB past the minimum
+    private static final long CUT_MASK = (1L << 13) - 1;
+    // fixed seed: the same bytes must cut at the same places in every backup, on every device
+    private static final long[] GEAR = gearTable(0x5749534831L);
+
+    private final ChunkStore store;
+    private final byte[] buffer = new byte[MAX_SIZE];
+    private final MessageDigest digest = sha256();
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    private final byte[] deflateBuffer = new byte[16 * 1024];
+    private final List<String> ids = new ArrayList<>();
+    private int length;
+    private long hash;
+    private int storedCount;
+    private long storedBytes;
+    private boolean closed = false;
+
+    public ChunkWriter(ChunkStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        buffer[length++] = (byte) b;
+        hash = (hash << 1) + GEAR[b & 0xff];
+        if ((length >= MIN_SIZE && (hash & CUT_MASK) == 0) || length == MAX_SIZE) {
+            cut();
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int count) throws IOException {
+        for (int i = offset; i < offset + count; i++) {
+            byte b = bytes[i];
+            buffer[length++] = b;
+            hash = (hash << 1) + GEAR[b & 0xff];
+            if ((length >= MIN_SIZE && (hash & CUT_MASK) == 0) || length == MAX_SIZE) {
+                cut();
+            }
+        }
+    }
+
+    // stores the last, shorter chunk; the stream is empty if nothing was written
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (length > 0) {
+            cut();
+        }
+        deflater.end();
+    }
+
+    // the stream in order; only valid after close()
+    public List<String> getChunkIds() {
+        return Collections.unmodifiableList(ids);
+    }
+
+    public int getStoredCount() {
+        return storedCount;
+    }
+
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    private void cut() throws IOException {
+        digest.update(buffer, 0, length);
+        String id = hex(digest.digest());
+        ids.add(id);
+        if (!store.contains(id)) {
+            deflater.reset();
+            deflater.setInput(buffer, 0, length);
+            deflater.finish();
+            compressed.reset();
+            while (!deflater.finished()) {
+                int n = deflater.deflate(deflateBuffer);
+                compressed.write(deflateBuffer, 0, n);
+            }
+            store.put(id, compressed.toByteArray(), compressed.size());
+            storedCount++;
+            storedBytes += compressed.size();
+        }
+        length = 0;
+        hash = 0;
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        char[] digits = "0123456789abcdef".toCharArray();
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[i * 2] = digits[(bytes[i] >> 4) & 0xf];
+            out[i * 2 + 1] = digits[bytes[i] & 0xf];
+        }
+        return new String(out);
+    }
+
+    private static long[] gearTable(long seed) {
+        Random random = new Random(seed);
+        long[] table = new long[256];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = random.nextLong();
+        }
+        return table;
+    }
+}
@@ -0,0 +1,32 @@
+package com.nightwithfireworks.wishlist.core;
+
+public class Deposit {
+
+    private final long id;
+    private final long wishId;
+    private final long amountSatang;
+    private final long createdAt;
+
+    public Deposit(long id, long wishId, long amountSatang, long createdAt) {
+        this.id = id;
+        this.wishId = wishId;
+        this.amountSatang = amountSatang;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getWishId() {
+        return wishId;
+    }
+
+    public long getAmountSatang() {
+        return amountSatang;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,132 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// splits one lump sum across several wishes; no wish ever gets more than it still needs, so every share passes
+// Financials.checkDeposit, and whatever no wish can take is left over rather than forced in
+public final class DepositAllocator {
+
+    public enum Strategy {
+        EQUAL,
+        PROPORTIONAL,
+        CHEAPEST_FIRST
+    }
+
+    private DepositAllocator() {
+    }
+
+    // one amount per wish, in the order given; the amounts add up to at most amountSatang
+    public static long[] allocate(List<Wish> wishes, long amountSatang, Strategy strategy) {
+        long[] remaining = new long[wishes.size()];
+        for (int i = 0; i < remaining.length; i++) {
+            Wish wish = wishes.get(i);
+            remaining[i] = Financials.remaining(wish.getPriceSatang(), wish.getSavedSatang());
+        }
+        if (amountSatang <= 0) {
+            return new long[remaining.length];
+        }
+
+        switch (strategy) {
+            case EQUAL:
+                return equal(remaining, amountSatang);
+            case PROPORTIONAL:
+                return proportional(remaining, amountSatang);
+            case CHEAPEST_FIRST:
+                return cheapestFirst(wishes, remaining, amountSatang);
+            default:
+                throw new IllegalArgumentException(strategy.name());
+        }
+    }
+
+    public static long sum(long[] amounts) {
+        long total = 0;
+        for (long amount : amounts) {
+            total += amount;
+        }
+        return total;
+    }
+
+    // even shares, walking from the smallest need up: a wish that needs less than its share is filled,
+    // and what it did not take is shared among the rest
+    private static long[] equal(long[] remaining, long amountSatang) {
+        Integer[] order = byRemaining(remaining);
+        long[] shares = new long[remaining.length];
+        long left = amountSatang;
+        int open = 0;
+        for (long need : remaining) {
+            if (need > 0) {
+                open++;
+            }
+        }
+        for (int index : order) {
+            if (remaining[index] == 0) {
+                continue;
+            }
+            // the first left % open wishes in this order get one extra satang
+            long share = left / open + (left % open > 0 ? 1 : 0);
+            shares[index] = Math.min(share, remaining[index]);
+            left -= shares[index];
+            open--;
+        }
+        return shares;
+    }
+
+    // shares follow each wish's remaining amount, rounded down; the satang lost to rounding go one each to the
+    // wishes with the largest remaining amount
+    private static long[] proportional(long[] remaining, long amountSatang) {
+        long totalRemaining = sum(remaining);
+        if (amountSatang >= totalRemaining) {
+            return remaining.clone();
+        }
+        long[] shares = new long[remaining.length];
+        BigInteger amount = BigInteger.valueOf(amountSatang);
+        BigInteger total = BigInteger.valueOf(totalRemaining);
+        long given = 0;
+        for (int i = 0; i < remaining.length; i++) {
+            shares[i] = amount.multiply(BigInteger.valueOf(remaining[i])).divide(total).longValue();
+            given += shares[i];
+        }
+        Integer[] order = byRemaining(remaining);
+        for (int i = order.length - 1; i >= 0 && given < amountSatang; i--) {
+            int index = order[i];
+            if (shares[index] < remaining[index]) {
+                shares[index]++;
+                given++;
+            }
+        }
+        return shares;
+    }
+
+    // the cheapest wish is filled first, then the next, until the money runs out
+    private static long[] cheapestFirst(List<Wish> wishes, long[] remaining, long amountSatang) {
+        Integer[] order = new Integer[remaining.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingLong(i -> wishes.get(i).getPriceSatang())
+                .thenComparingLong(i -> wishes.get(i).getId()));
+
+        long[] shares = new long[remaining.length];
+        long left = amountSatang;
+        for (int index : order) {
+            if (left == 0) {
+                break;
+            }
+            shares[index] = Math.min(left, remaining[index]);
+            left -= shares[index];
+        }
+        return shares;
+    }
+
+    private static Integer[] byRemaining(long[] remaining) {
+        Integer[] order = new Integer[remaining.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> remaining[i]));
+        return order;
+    }
+}
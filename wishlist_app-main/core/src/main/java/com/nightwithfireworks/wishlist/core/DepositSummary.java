@@ -0,0 +1,35 @@
+package com.nightwithfireworks.wishlist.core;
+
+// what the forecast needs from a wish's ledger, without holding the ledger itself
+public class DepositSummary {
+
+    public static final DepositSummary EMPTY = new DepositSummary(0, 0, 0, 0);
+
+    private final int count;
+    private final long totalSatang;
+    private final long firstAt;
+    private final long lastAt;
+
+    public DepositSummary(int count, long totalSatang, long firstAt, long lastAt) {
+        this.count = count;
+        this.totalSatang = totalSatang;
+        this.firstAt = firstAt;
+        this.lastAt = lastAt;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getTotalSatang() {
+        return totalSatang;
+    }
+
+    public long getFirstAt() {
+        return firstAt;
+    }
+
+    public long getLastAt() {
+        return lastAt;
+    }
+}
@@ -0,0 +1,58 @@
+package com.nightwithfireworks.wishlist.core;
+
+public final class Financials {
+
+    public enum DepositCheck {
+        OK,
+        INVALID_AMOUNT,
+        EXCEEDS_REMAINING
+    }
+
+    public static final long FULL_BASIS_POINTS = 10000;
+
+    private static final int STAGE_TWO_PERCENT = 31;
+
+    private Financials() {
+    }
+
+    public static long remaining(long priceSatang, long savedSatang) {
+        return Math.max(0, priceSatang - savedSatang);
+    }
+
+    // progress in 1/100 of a percent, capped at 10000
+    public static long progressBasisPoints(long priceSatang, long savedSatang) {
+        if (priceSatang > 0) {
+            return Math.min(savedSatang, priceSatang) * FULL_BASIS_POINTS / priceSatang;
+        }
+        return savedSatang > 0 ? FULL_BASIS_POINTS : 0;
+    }
+
+    public static int progressPercent(long priceSatang, long savedSatang) {
+        return (int) (progressBasisPoints(priceSatang, savedSatang) / 100);
+    }
+
+    public static boolean isComplete(long priceSatang, long savedSatang) {
+        return progressBasisPoints(priceSatang, savedSatang) >= FULL_BASIS_POINTS;
+    }
+
+    // 1 = seedling, 2 = growing (from 31%), 3 = fully grown
+    public static int growthStage(long priceSatang, long savedSatang) {
+        int percent = progressPercent(priceSatang, savedSatang);
+        if (percent >= 100) {
+            return 3;
+        } else if (percent >= STAGE_TWO_PERCENT) {
+            return 2;
+        }
+        return 1;
+    }
+
+    public static DepositCheck checkDeposit(long priceSatang, long savedSatang, long depositSatang) {
+        long remaining = remaining(priceSatang, savedSatang);
+        if (depositSatang <= 0) {
+            return DepositCheck.INVALID_AMOUNT;
+        } else if (depositSatang > remaining && remaining > 0) {
+            return DepositCheck.EXCEEDS_REMAINING;
+        }
+        return DepositCheck.OK;
+    }
+}
@@ -0,0 +1,41 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// amounts are held as satang (1/100 baht) so deposits add up exactly
+public final class Money {
+
+    private static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    public static long parseSatang(String text) {
+        String cleaned = text.trim().replace("฿", "").replace(",", "");
+        try {
+            return new BigDecimal(cleaned)
+                    .setScale(SCALE, RoundingMode.HALF_UP)
+                    .unscaledValue()
+                    .longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+    }
+
+    public static long parseSatangOrZero(String text) {
+        try {
+            return parseSatang(text);
+        } catch (NumberFormatException | NullPointerException e) {
+            return 0L;
+        }
+    }
+
+    public static String format(long satang) {
+        return BigDecimal.valueOf(satang, SCALE).stripTrailingZeros().toPlainString();
+    }
+
+    public static String formatFixed(long satang) {
+        return BigDecimal.valueOf(satang, SCALE).toPlainString();
+    }
+}
@@ -0,0 +1,181 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// substring search over wish names through a character n-gram inverted index. Thai has no spaces between words,
+// so names are not split into words: every character and every pair of adjacent characters is a key, and a query
+// only visits the wishes that contain all of its keys. Updated one wish at a time as wishes are added and removed
+public class NameSearchIndex {
+
+    private final Map<Integer, Postings> postings = new HashMap<>();
+    // normalized names, to rule out candidates whose pairs match but not in sequence
+    private final Map<Long, String> names = new HashMap<>();
+
+    public int size() {
+        return names.size();
+    }
+
+    public void add(long id, String name) {
+        if (names.containsKey(id)) {
+            return;
+        }
+        String normalized = normalize(name);
+        names.put(id, normalized);
+        for (int key : keys(normalized)) {
+            postings.computeIfAbsent(key, k -> new Postings()).add(id);
+        }
+    }
+
+    public void remove(long id) {
+        String normalized = names.remove(id);
+        if (normalized == null) {
+            return;
+        }
+        for (int key : keys(normalized)) {
+            Postings list = postings.get(key);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    // ids of the wishes whose name contains query, in ascending order; an empty query matches nothing
+    public long[] search(String query) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return new long[0];
+        }
+        int[] keys = normalized.length() == 1 ? new int[]{unigram(normalized.charAt(0))} : bigrams(normalized);
+
+        Postings[] lists = new Postings[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            lists[i] = postings.get(keys[i]);
+            if (lists[i] == null) {
+                return new long[0];
+            }
+        }
+        // intersect from the rarest key up, so the cost follows the short lists rather than the wish count
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        long[] matches = Arrays.copyOf(lists[0].ids, lists[0].size);
+        int count = matches.length;
+        for (int i = 1; i < lists.length && count > 0; i++) {
+            count = intersect(matches, count, lists[i]);
+        }
+
+        // every pair can be present without the query itself, e.g. "abba" has both pairs of "aba"
+        if (normalized.length() > 2) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (names.get(matches[i]).contains(normalized)) {
+                    matches[kept++] = matches[i];
+                }
+            }
+            count = kept;
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    // keeps the first count ids of matches that also appear in list; both are ascending, so one merge pass
+    private static int intersect(long[] matches, int count, Postings list) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < list.size; i++) {
+            long id = matches[i];
+            while (j < list.size && list.ids[j] < id) {
+                j++;
+            }
+            if (j < list.size && list.ids[j] == id) {
+                matches[kept++] = id;
+            }
+        }
+        return kept;
+    }
+
+    // lower case, and without the zero-width spaces some Thai input methods put between words
+    static String normalize(String text) {
+        StringBuilder out = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '\u200B') {
+                out.append(Character.toLowerCase(c));
+            }
+        }
+        return out.toString();
+    }
+
+    private static int[] keys(String normalized) {
+        int[] pairs = bigrams(normalized);
+        int[] keys = Arrays.copyOf(pairs, pairs.length + normalized.length());
+        for (int i = 0; i < normalized.length(); i++) {
+            keys[pairs.length + i] = unigram(normalized.charAt(i));
+        }
+        return distinct(keys);
+    }
+
+    private static int[] bigrams(String normalized) {
+        int[] keys = new int[Math.max(0, normalized.length() - 1)];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = bigram(normalized.charAt(i), normalized.charAt(i + 1));
+        }
+        return distinct(keys);
+    }
+
+    private static int[] distinct(int[] keys) {
+        if (keys.length < 2) {
+            return keys;
+        }
+        Arrays.sort(keys);
+        int count = 1;
+        for (int i = 1; i < keys.length; i++) {
+            if (keys[i] != keys[count - 1]) {
+                keys[count++] = keys[i];
+            }
+        }
+        return Arrays.copyOf(keys, count);
+    }
+
+    // single characters keep the high half zero; a pair never does, since no name contains U+0000
+    private static int unigram(char c) {
+        return c;
+    }
+
+    private static int bigram(char first, char second) {
+        return (first << 16) | second;
+    }
+
+    // ascending wish ids; new wishes have the highest id, so adding is an append in practice
+    private static final class Postings {
+        long[] ids = new long[4];
+        int size;
+
+        void add(long id) {
+            int index = indexOf(id);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int index = indexOf(id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        int indexOf(long id) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.nightwithfireworks.wishlist.core;
+
+// one of the user's lists, e.g. per person or per occasion; wishes belong to exactly one
+public class NamedList {
+
+    private final long id;
+    private final String name;
+
+    public NamedList(long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
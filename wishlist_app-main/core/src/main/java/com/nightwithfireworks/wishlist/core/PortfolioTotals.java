@@ -0,0 +1,78 @@
+package com.nightwithfireworks.wishlist.core;
+
+// running sums over every wish; each change is applied as a delta so no update walks the list
+public class PortfolioTotals {
+
+    private int count;
+    private int completedCount;
+    private long targetSatang;
+    private long savedSatang;
+    private long remainingSatang;
+
+    public PortfolioTotals() {
+    }
+
+    public PortfolioTotals(int count, int completedCount, long targetSatang, long savedSatang, long remainingSatang) {
+        this.count = count;
+        this.completedCount = completedCount;
+        this.targetSatang = targetSatang;
+        this.savedSatang = savedSatang;
+        this.remainingSatang = remainingSatang;
+    }
+
+    public void add(Wish wish) {
+        apply(wish, 1);
+    }
+
+    public void remove(Wish wish) {
+        apply(wish, -1);
+    }
+
+    public void replace(Wish before, Wish after) {
+        apply(before, -1);
+        apply(after, 1);
+    }
+
+    public void clear() {
+        count = 0;
+        completedCount = 0;
+        targetSatang = 0;
+        savedSatang = 0;
+        remainingSatang = 0;
+    }
+
+    public PortfolioTotals copy() {
+        return new PortfolioTotals(count, completedCount, targetSatang, savedSatang, remainingSatang);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getCompletedCount() {
+        return completedCount;
+    }
+
+    public long getTargetSatang() {
+        return targetSatang;
+    }
+
+    public long getSavedSatang() {
+        return savedSatang;
+    }
+
+    // summed per wish, so money saved beyond one wish's price never hides what another still needs
+    public long getRemainingSatang() {
+        return remainingSatang;
+    }
+
+    private void apply(Wish wish, int sign) {
+        count += sign;
+        if (Financials.isComplete(wish.getPriceSatang(), wish.getSavedSatang())) {
+            completedCount += sign;
+        }
+        targetSatang += sign * wish.getPriceSatang();
+        savedSatang += sign * wish.getSavedSatang();
+        remainingSatang += sign * wish.getRemainingSatang();
+    }
+}
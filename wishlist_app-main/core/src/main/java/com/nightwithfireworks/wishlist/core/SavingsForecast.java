@@ -0,0 +1,34 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.time.Clock;
+
+// projects the completion date from the average deposit and the average gap between deposits, counted from the
+// last deposit or from now, whichever is later: a history that stopped months ago must not give a date in the past
+public final class SavingsForecast {
+
+    public static final long UNKNOWN = -1;
+
+    private SavingsForecast() {
+    }
+
+    // epoch millis, or UNKNOWN when there are fewer than two deposits at different times
+    public static long estimateCompletion(DepositSummary deposits, long remainingSatang, Clock clock) {
+        if (remainingSatang <= 0) {
+            return deposits.getLastAt();
+        }
+        long span = deposits.getLastAt() - deposits.getFirstAt();
+        if (deposits.getCount() < 2 || span <= 0 || deposits.getTotalSatang() <= 0) {
+            return UNKNOWN;
+        }
+
+        // average deposit / average gap = total * (n - 1) / (n * span) satang per millisecond
+        double ratePerMs = (double) deposits.getTotalSatang() * (deposits.getCount() - 1)
+                / ((double) deposits.getCount() * span);
+        double millisLeft = Math.ceil(remainingSatang / ratePerMs);
+        long from = Math.max(clock.millis(), deposits.getLastAt());
+        if (millisLeft > Long.MAX_VALUE - from) {
+            return UNKNOWN;
+        }
+        return from + (long) millisLeft;
+    }
+}
@@ -0,0 +1,77 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+// ordered by (key, id) so equal keys stay distinct and ties break by insertion order
+public class SortedWishIndex {
+
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingLong((Entry e) -> e.key)
+            .thenComparingLong(e -> e.id);
+
+    private final WishSort sort;
+    private final TreeSet<Entry> entries = new TreeSet<>(ORDER);
+
+    public SortedWishIndex(WishSort sort) {
+        this.sort = sort;
+    }
+
+    public void add(Wish wish) {
+        entries.add(new Entry(sort.keyOf(wish), wish.getId(), wish));
+    }
+
+    public void remove(Wish wish) {
+        entries.remove(new Entry(sort.keyOf(wish), wish.getId(), null));
+    }
+
+    public void replace(Wish oldWish, Wish newWish) {
+        remove(oldWish);
+        add(newWish);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public List<Wish> list() {
+        return collect(sort.isDescending() ? entries.descendingSet() : entries);
+    }
+
+    public List<Wish> range(long minKey, long maxKey) {
+        if (minKey > maxKey) {
+            return new ArrayList<>();
+        }
+        NavigableSet<Entry> slice = entries.subSet(
+                new Entry(minKey, Long.MIN_VALUE, null), true,
+                new Entry(maxKey, Long.MAX_VALUE, null), true);
+        return collect(sort.isDescending() ? slice.descendingSet() : slice);
+    }
+
+    private static List<Wish> collect(NavigableSet<Entry> slice) {
+        List<Wish> result = new ArrayList<>(slice.size());
+        for (Entry entry : slice) {
+            result.add(entry.wish);
+        }
+        return result;
+    }
+
+    private static final class Entry {
+        final long key;
+        final long id;
+        final Wish wish;
+
+        Entry(long key, long id, Wish wish) {
+            this.key = key;
+            this.id = id;
+            this.wish = wish;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.util.Objects;
+
+public class Wish {
+
+    private final long id;
+    private final String name;
+    private final long priceSatang;
+    private final String imageUri;
+    private final long savedSatang;
+
+    public Wish(long id, String name, long priceSatang, String imageUri, long savedSatang) {
+        this.id = id;
+        this.name = name;
+        this.priceSatang = priceSatang;
+        this.imageUri = imageUri == null ? "" : imageUri;
+        this.savedSatang = savedSatang;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getPriceSatang() {
+        return priceSatang;
+    }
+
+    public String getImageUri() {
+        return imageUri;
+    }
+
+    public boolean hasImage() {
+        return !imageUri.isEmpty();
+    }
+
+    public long getSavedSatang() {
+        return savedSatang;
+    }
+
+    public long getRemainingSatang() {
+        return Financials.remaining(priceSatang, savedSatang);
+    }
+
+    public long getProgressBasisPoints() {
+        return Financials.progressBasisPoints(priceSatang, savedSatang);
+    }
+
+    public Wish withSavedSatang(long newSavedSatang) {
+        return new Wish(id, name, priceSatang, imageUri, newSavedSatang);
+    }
+
+    public boolean sameContentAs(Wish other) {
+        return name.equals(other.name)
+                && priceSatang == other.priceSatang
+                && imageUri.equals(other.imageUri)
+                && savedSatang == other.savedSatang;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Wish)) return false;
+        Wish wish = (Wish) o;
+        return id == wish.id && sameContentAs(wish);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, priceSatang, imageUri, savedSatang);
+    }
+}
@@ -0,0 +1,143 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// reads name,price,savedAmount,imageUri rows (RFC 4180 quoting) one record at a time;
+// columns are matched by the header, so files edited in a spreadsheet still load
+public class WishCsvReader implements Closeable {
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int position = 0;
+    private int limit = 0;
+    private Map<String, Integer> columns;
+    private List<String> pending;
+
+    public WishCsvReader(Reader in) {
+        this.in = in;
+    }
+
+    public boolean hasNext() throws IOException {
+        if (columns == null) {
+            // excel and notepad save utf-8 with a byte order mark, which would hide the first column name
+            if (peek() == '\uFEFF') {
+                read();
+            }
+            List<String> header = readRecord();
+            columns = new HashMap<>();
+            if (header != null) {
+                for (int i = 0; i < header.size(); i++) {
+                    columns.put(header.get(i).trim(), i);
+                }
+            }
+        }
+        while (pending == null) {
+            List<String> record = readRecord();
+            if (record == null) {
+                return false;
+            }
+            if (record.size() > 1 || !record.get(0).isEmpty()) {
+                pending = record;
+            }
+        }
+        return true;
+    }
+
+    // returns null for a row without a name, which callers skip
+    public Wish next() throws IOException {
+        if (!hasNext()) {
+            return null;
+        }
+        List<String> record = pending;
+        pending = null;
+
+        String name = field(record, "name");
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        long priceSatang = Money.parseSatangOrZero(field(record, "price"));
+        long savedSatang = Money.parseSatangOrZero(field(record, "savedAmount"));
+        String imageUri = field(record, "imageUri");
+        return new Wish(0, name, priceSatang, imageUri == null ? "" : imageUri, savedSatang);
+    }
+
+    private String field(List<String> record, String column) {
+        Integer index = columns.get(column);
+        return index == null || index >= record.size() ? null : record.get(index);
+    }
+
+    private List<String> readRecord() throws IOException {
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("unterminated quoted field");
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                break;
+            } else if (c == '\r') {
+                if (peek() == '\n') {
+                    read();
+                }
+                break;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c != -1) {
+            position++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,60 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+// writes the columns WishCsvReader expects, quoting only the fields that need it
+public class WishCsvWriter implements Closeable {
+
+    private static final String HEADER = "name,price,savedAmount,imageUri";
+
+    private final Writer out;
+    private boolean started = false;
+
+    public WishCsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void write(Wish wish) throws IOException {
+        if (!started) {
+            out.write(HEADER);
+            out.write("\r\n");
+            started = true;
+        }
+        writeField(wish.getName());
+        out.write(',');
+        out.write(Money.formatFixed(wish.getPriceSatang()));
+        out.write(',');
+        out.write(Money.formatFixed(wish.getSavedSatang()));
+        out.write(',');
+        writeField(wish.getImageUri() == null ? "" : wish.getImageUri());
+        out.write("\r\n");
+    }
+
+    public void finish() throws IOException {
+        if (!started) {
+            out.write(HEADER);
+            out.write("\r\n");
+            started = true;
+        }
+        out.flush();
+    }
+
+    private void writeField(String value) throws IOException {
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
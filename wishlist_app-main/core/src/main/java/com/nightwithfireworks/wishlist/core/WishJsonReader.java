@@ -0,0 +1,78 @@
+package com.nightwithfireworks.wishlist.core;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+// pulls one wish at a time out of a wishlist JSON array without building a DOM
+public class WishJsonReader implements Closeable {
+
+    private final JsonReader reader;
+    private boolean started = false;
+    private boolean finished = false;
+
+    public WishJsonReader(Reader in) {
+        reader = new JsonReader(in);
+    }
+
+    public boolean hasNext() throws IOException {
+        if (finished) {
+            return false;
+        }
+        if (!started) {
+            reader.beginArray();
+            started = true;
+        }
+        if (reader.hasNext()) {
+            return true;
+        }
+        reader.endArray();
+        finished = true;
+        return false;
+    }
+
+    // returns null for an entry without a name, which callers skip
+    public Wish next() throws IOException {
+        String name = null;
+        long priceSatang = 0;
+        String imageUri = "";
+        long savedSatang = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "name":
+                    name = reader.nextString();
+                    break;
+                case "price":
+                    priceSatang = Money.parseSatangOrZero(reader.nextString());
+                    break;
+                case "imageUri":
+                    imageUri = reader.nextString();
+                    break;
+                case "savedAmount":
+                    savedSatang = Money.parseSatangOrZero(reader.nextString());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return name == null ? null : new Wish(0, name, priceSatang, imageUri, savedSatang);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,46 @@
+package com.nightwithfireworks.wishlist.core;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+// writes the wishlist JSON array one record at a time; the format is the one wishlist_prefs used
+public class WishJsonWriter implements Closeable {
+
+    private final JsonWriter writer;
+    private boolean started = false;
+
+    public WishJsonWriter(Writer out) {
+        writer = new JsonWriter(out);
+    }
+
+    public void write(Wish wish) throws IOException {
+        if (!started) {
+            writer.beginArray();
+            started = true;
+        }
+        writer.beginObject();
+        writer.name("name").value(wish.getName());
+        writer.name("price").value(Money.format(wish.getPriceSatang()));
+        writer.name("imageUri").value(wish.getImageUri());
+        writer.name("savedAmount").value(BigDecimal.valueOf(wish.getSavedSatang(), 2));
+        writer.endObject();
+    }
+
+    public void finish() throws IOException {
+        if (!started) {
+            writer.beginArray();
+            started = true;
+        }
+        writer.endArray();
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
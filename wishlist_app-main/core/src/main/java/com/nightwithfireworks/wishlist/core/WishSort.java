@@ -0,0 +1,32 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.util.Comparator;
+import java.util.function.ToLongFunction;
+
+public enum WishSort {
+    ADDED(Wish::getId, false),
+    PRICE(Wish::getPriceSatang, false),
+    REMAINING(Wish::getRemainingSatang, false),
+    PROGRESS(Wish::getProgressBasisPoints, true);
+
+    private final ToLongFunction<Wish> key;
+    private final boolean descending;
+
+    WishSort(ToLongFunction<Wish> key, boolean descending) {
+        this.key = key;
+        this.descending = descending;
+    }
+
+    public long keyOf(Wish wish) {
+        return key.applyAsLong(wish);
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public Comparator<Wish> comparator() {
+        Comparator<Wish> ascending = Comparator.comparingLong(key).thenComparingLong(Wish::getId);
+        return descending ? ascending.reversed() : ascending;
+    }
+}
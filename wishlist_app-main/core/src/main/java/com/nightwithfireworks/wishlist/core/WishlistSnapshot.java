@@ -0,0 +1,70 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.util.Collections;
+import java.util.List;
+
+// one published version of the open list; never changes after construction, so any thread may read it without locks
+public final class WishlistSnapshot {
+
+    public static final WishlistSnapshot EMPTY =
+            new WishlistSnapshot(0, -1, Collections.emptyList(), new PortfolioTotals(), false);
+
+    private final long version;
+    private final long listId;
+    private final List<Wish> wishes;
+    private final PortfolioTotals totals;
+    private final boolean complete;
+
+    // wishes must be in ascending id order and must not be modified afterwards; totals are copied
+    public WishlistSnapshot(long version, long listId, List<Wish> wishes, PortfolioTotals totals, boolean complete) {
+        this.version = version;
+        this.listId = listId;
+        this.wishes = Collections.unmodifiableList(wishes);
+        this.totals = totals.copy();
+        this.complete = complete;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getListId() {
+        return listId;
+    }
+
+    public List<Wish> getWishes() {
+        return wishes;
+    }
+
+    public int size() {
+        return wishes.size();
+    }
+
+    // a fresh copy, so the caller cannot change what other readers see
+    public PortfolioTotals getTotals() {
+        return totals.copy();
+    }
+
+    // false while the list is still being paged in, or only the startup cards are shown
+    public boolean isComplete() {
+        return complete;
+    }
+
+    // binary search: ids only grow as rows are appended, and removals keep the order
+    public Wish find(long id) {
+        int low = 0;
+        int high = wishes.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = wishes.get(mid).getId();
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return wishes.get(mid);
+            }
+        }
+        return null;
+    }
+}
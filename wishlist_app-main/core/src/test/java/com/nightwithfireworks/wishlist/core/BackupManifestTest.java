@@ -0,0 +1,77 @@
+package com.nightwithfireworks.wishlist.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class BackupManifestTest {
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException {
+        Map<String, List<String>> images = new LinkedHashMap<>();
+        images.put("ab12.jpg", Arrays.asList("c1", "c2"));
+        images.put("photo 2.png", Collections.singletonList("c3"));
+        BackupManifest manifest = new BackupManifest(1_700_000_000_000L, Arrays.asList("d1", "d2", "c1"), images);
+
+        BackupManifest read = BackupManifest.read(new StringReader(write(manifest)));
+
+        assertEquals(1_700_000_000_000L, read.getCreatedAt());
+        assertEquals(Arrays.asList("d1", "d2", "c1"), read.getDataChunks());
+        assertEquals(images, read.getImages());
+        assertEquals(new HashSet<>(Arrays.asList("d1", "d2", "c1", "c2", "c3")), read.allChunks());
+    }
+
+    @Test
+    public void emptyBackupHasAnEmptyDataSection() throws IOException {
+        BackupManifest manifest = new BackupManifest(5, Collections.emptyList(), Collections.emptyMap());
+
+        BackupManifest read = BackupManifest.read(new StringReader(write(manifest)));
+
+        assertEquals(Collections.emptyList(), read.getDataChunks());
+        assertEquals(Collections.emptyMap(), read.getImages());
+    }
+
+    @Test
+    public void truncatedManifestFails() throws IOException {
+        BackupManifest manifest = new BackupManifest(5, Arrays.asList("d1", "d2", "d3"), Collections.emptyMap());
+        String text = write(manifest);
+
+        expectFailure(text.substring(0, text.indexOf("d3")), "Manifest ends inside data");
+    }
+
+    @Test
+    public void manifestWithoutDataFails() throws IOException {
+        expectFailure("wishlist-backup 1\ncreated 5\nimage a.jpg 1\nc1\n", "Manifest has no data section");
+    }
+
+    @Test
+    public void otherFileIsRejected() throws IOException {
+        expectFailure("name,price\nBike,100\n", "Not a wishlist backup manifest");
+    }
+
+    private static void expectFailure(String text, String message) {
+        try {
+            BackupManifest.read(new StringReader(text));
+            fail("read " + text);
+        } catch (IOException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    private static String write(BackupManifest manifest) throws IOException {
+        StringWriter out = new StringWriter();
+        manifest.write(out);
+        return out.toString();
+    }
+}
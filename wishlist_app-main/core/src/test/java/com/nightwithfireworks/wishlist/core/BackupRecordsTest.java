@@ -0,0 +1,134 @@
+package com.nightwithfireworks.wishlist.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class BackupRecordsTest {
+
+    @Test
+    public void readsBackEveryRecordInOrder() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int written = writeSample(out, 3);
+
+        Recorder recorder = new Recorder();
+        int read = BackupRecords.read(new ByteArrayInputStream(out.toByteArray()), recorder);
+
+        assertEquals(3, written);
+        assertEquals(3, read);
+        assertEquals(Arrays.asList(
+                "list 1 Wishes",
+                "list 2 ของขวัญ",
+                "wish 1 1 wish 0 10000  1700000000000",
+                "wish 2 2 wish 1 10001 ab12.jpg 1700000000001",
+                "wish 3 1 wish 2 10002  1700000000002",
+                "deposit 1 1 500 1700000100000",
+                "deposit 2 2 500 1700000100001",
+                "deposit 3 3 500 1700000100002"), recorder.records);
+    }
+
+    @Test
+    public void roundTripsThroughChunks() throws IOException {
+        MemoryChunkStore store = new MemoryChunkStore();
+        ChunkWriter data = new ChunkWriter(store);
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        writeSample(data, 5000);
+        data.close();
+        writeSample(plain, 5000);
+
+        Recorder fromChunks = new Recorder();
+        int count;
+        try (InputStream in = new ChunkReader(data.getChunkIds(), store)) {
+            count = BackupRecords.read(in, fromChunks);
+        }
+        Recorder fromBytes = new Recorder();
+        BackupRecords.read(new ByteArrayInputStream(plain.toByteArray()), fromBytes);
+
+        assertEquals(5000, count);
+        assertEquals(fromBytes.records, fromChunks.records);
+    }
+
+    // without the end marker a cut-off backup would restore as a smaller, valid-looking one
+    @Test(expected = EOFException.class)
+    public void streamWithoutEndMarkerFails() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeSample(out, 3);
+        byte[] bytes = out.toByteArray();
+
+        BackupRecords.read(new ByteArrayInputStream(bytes, 0, bytes.length - 1), new Recorder());
+    }
+
+    @Test(expected = EOFException.class)
+    public void streamCutInsideARecordFails() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeSample(out, 3);
+        byte[] bytes = out.toByteArray();
+
+        BackupRecords.read(new ByteArrayInputStream(bytes, 0, bytes.length - 12), new Recorder());
+    }
+
+    @Test(expected = EOFException.class)
+    public void missingLastChunkFails() throws IOException {
+        MemoryChunkStore store = new MemoryChunkStore();
+        ChunkWriter data = new ChunkWriter(store);
+        writeSample(data, 5000);
+        data.close();
+        List<String> ids = data.getChunkIds();
+
+        try (InputStream in = new ChunkReader(ids.subList(0, ids.size() - 1), store)) {
+            BackupRecords.read(in, new Recorder());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFileIsRejected() throws IOException {
+        byte[] bytes = "name,price\nBike,100\n".getBytes("UTF-8");
+
+        BackupRecords.read(new ByteArrayInputStream(bytes), new Recorder());
+    }
+
+    // two lists, wishes alternating between them, one deposit per wish
+    private static int writeSample(OutputStream out, int wishes) throws IOException {
+        BackupRecords.Writer writer = new BackupRecords.Writer(out);
+        writer.list(1, "Wishes");
+        writer.list(2, "ของขวัญ");
+        for (int i = 0; i < wishes; i++) {
+            writer.wish(i + 1, i % 2 + 1, "wish " + i, 10000 + i, i % 2 == 1 ? "ab12.jpg" : null,
+                    1_700_000_000_000L + i);
+        }
+        for (int i = 0; i < wishes; i++) {
+            writer.deposit(i + 1, i + 1, 500, 1_700_000_100_000L + i);
+        }
+        writer.finish();
+        return writer.getWishCount();
+    }
+
+    private static final class Recorder implements BackupRecords.Visitor {
+        final List<String> records = new ArrayList<>();
+
+        @Override
+        public void list(long id, String name) {
+            records.add("list " + id + " " + name);
+        }
+
+        @Override
+        public void wish(long id, long listId, String name, long priceSatang, String image, long createdAt) {
+            records.add("wish " + id + " " + listId + " " + name + " " + priceSatang + " " + image + " " + createdAt);
+        }
+
+        @Override
+        public void deposit(long id, long wishId, long amountSatang, long createdAt) {
+            records.add("deposit " + id + " " + wishId + " " + amountSatang + " " + createdAt);
+        }
+    }
+}
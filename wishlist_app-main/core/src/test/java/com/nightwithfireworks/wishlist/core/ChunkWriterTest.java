@@ -0,0 +1,162 @@
+package com.nightwithfireworks.wishlist.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ChunkWriterTest {
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException {
+        MemoryChunkStore store = new MemoryChunkStore();
+        byte[] data = randomBytes(1, 1024 * 1024);
+
+        List<String> ids = write(store, data);
+
+        assertTrue(ids.size() > 1);
+        assertArrayEquals(data, read(ids, store));
+    }
+
+    @Test
+    public void chunksStayWithinTheSizeLimits() throws IOException {
+        MemoryChunkStore store = new MemoryChunkStore();
+        List<String> ids = write(store, randomBytes(2, 1024 * 1024));
+
+        for (int i = 0; i < ids.size(); i++) {
+            int size = read(Collections.singletonList(ids.get(i)), store).length;
+            assertTrue("chunk " + i + " is " + size, size <= ChunkWriter.MAX_SIZE);
+            // only the last chunk may end early
+            assertTrue("chunk " + i + " is " + size, size >= ChunkWriter.MIN_SIZE || i == ids.size() - 1);
+        }
+    }
+
+    @Test
+    public void unchangedStreamStoresNothing() throws IOException {
+        MemoryChunkStore store = new MemoryChunkStore();
+        byte[] data = randomBytes(3, 256 * 1024);
+        write(store, data);
+
+        ChunkWriter again = new ChunkWriter(store);
+        again.write(data);
+        again.close();
+
+        assertEquals(0, again.getStoredCount());
+        assertEquals(0, again.getStoredBytes());
+    }
+
+    // a few bytes inserted near the front only change the chunks around them, not every chunk after
+    @Test
+    public void insertionStoresOnlyNearbyChunks() throws IOException {
+        MemoryChunkStore store = new MemoryChunkStore();
+        byte[] data = randomBytes(4, 1024 * 1024);
+        List<String> before = write(store, data);
+
+        byte[] edited = new byte[data.length + 5];
+        System.arraycopy(data, 0, edited, 0, 10_000);
+        System.arraycopy(data, 10_000, edited, 10_005, data.length - 10_000);
+        ChunkWriter writer = new ChunkWriter(store);
+        writer.write(edited);
+        writer.close();
+
+        assertTrue(writer.getStoredCount() + " of " + before.size(), writer.getStoredCount() <= 2);
+        assertArrayEquals(edited, read(writer.getChunkIds(), store));
+    }
+
+    @Test
+    public void emptyStreamHasNoChunks() throws IOException {
+        MemoryChunkStore store = new MemoryChunkStore();
+
+        List<String> ids = write(store, new byte[0]);
+
+        assertEquals(0, ids.size());
+        assertEquals(-1, new ChunkReader(ids, store).read());
+    }
+
+    // well-formed compressed data with the wrong content is only caught by the hash
+    @Test
+    public void damagedChunkFailsTheRead() throws IOException {
+        MemoryChunkStore store = new MemoryChunkStore();
+        byte[] data = randomBytes(5, 200 * 1024);
+        List<String> ids = write(store, data);
+        String victim = ids.get(1);
+        byte[] content = read(Collections.singletonList(victim), store);
+        content[content.length / 2] ^= 1;
+        store.chunks.put(victim, deflate(content));
+
+        try {
+            read(ids, store);
+            fail("read a damaged chunk");
+        } catch (IOException e) {
+            assertEquals("Backup chunk " + victim + " is damaged", e.getMessage());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptCompressedBytesFailTheRead() throws IOException {
+        MemoryChunkStore store = new MemoryChunkStore();
+        List<String> ids = write(store, randomBytes(6, 200 * 1024));
+        byte[] stored = store.chunks.get(ids.get(0));
+        for (int i = 2; i < stored.length; i += 7) {
+            stored[i] ^= (byte) 0x5a;
+        }
+
+        read(ids, store);
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void missingChunkFailsTheRead() throws IOException {
+        MemoryChunkStore store = new MemoryChunkStore();
+        List<String> ids = write(store, randomBytes(7, 200 * 1024));
+        store.chunks.remove(ids.get(ids.size() - 1));
+
+        read(ids, store);
+    }
+
+    static List<String> write(ChunkStore store, byte[] data) throws IOException {
+        ChunkWriter writer = new ChunkWriter(store);
+        // odd write sizes, so cuts fall inside and across the caller's buffers
+        for (int offset = 0; offset < data.length; offset += 3001) {
+            writer.write(data, offset, Math.min(3001, data.length - offset));
+        }
+        writer.close();
+        return writer.getChunkIds();
+    }
+
+    static byte[] read(List<String> ids, ChunkStore store) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new ChunkReader(ids, store)) {
+            byte[] buffer = new byte[5000];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(out)) {
+            deflater.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] randomBytes(long seed, int length) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,114 @@
+package com.nightwithfireworks.wishlist.core;
+
+import com.nightwithfireworks.wishlist.core.DepositAllocator.Strategy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DepositAllocatorTest {
+
+    @Test
+    public void equalGivesTheRemainderOneSatangEach() {
+        List<Wish> wishes = needing(1000, 1000, 1000);
+
+        long[] shares = DepositAllocator.allocate(wishes, 100, Strategy.EQUAL);
+
+        assertArrayEquals(new long[]{34, 33, 33}, shares);
+    }
+
+    @Test
+    public void equalCapsAtRemainingAndSharesWhatIsLeft() {
+        List<Wish> wishes = needing(1000, 50, 1000);
+
+        long[] shares = DepositAllocator.allocate(wishes, 900, Strategy.EQUAL);
+
+        assertArrayEquals(new long[]{425, 50, 425}, shares);
+    }
+
+    @Test
+    public void proportionalGivesRoundingLossToTheLargestNeed() {
+        List<Wish> wishes = needing(100, 200, 300);
+
+        long[] shares = DepositAllocator.allocate(wishes, 100, Strategy.PROPORTIONAL);
+
+        // 16.67, 33.33 and 50 round down to 99; the last satang goes to the wish needing 300
+        assertArrayEquals(new long[]{16, 33, 51}, shares);
+    }
+
+    @Test
+    public void cheapestFirstFillsInPriceOrder() {
+        List<Wish> wishes = needing(500, 100, 300);
+
+        long[] shares = DepositAllocator.allocate(wishes, 450, Strategy.CHEAPEST_FIRST);
+
+        assertArrayEquals(new long[]{50, 100, 300}, shares);
+    }
+
+    @Test
+    public void moreThanEveryWishNeedsFillsThemAndLeavesTheRest() {
+        List<Wish> wishes = needing(100, 200, 0);
+
+        for (Strategy strategy : Strategy.values()) {
+            long[] shares = DepositAllocator.allocate(wishes, 1000, strategy);
+
+            assertArrayEquals(strategy.name(), new long[]{100, 200, 0}, shares);
+        }
+    }
+
+    @Test
+    public void nothingToSplitGivesNothing() {
+        List<Wish> wishes = needing(100, 200);
+
+        for (Strategy strategy : Strategy.values()) {
+            assertArrayEquals(new long[2], DepositAllocator.allocate(wishes, 0, strategy));
+            assertArrayEquals(new long[2], DepositAllocator.allocate(wishes, -5, strategy));
+        }
+    }
+
+    // the shares never exceed a wish's remaining amount and add up to the amount, or to everything still needed
+    @Test
+    public void sharesAlwaysAddUp() {
+        Random random = new Random(7);
+        for (int round = 0; round < 2000; round++) {
+            int count = 1 + random.nextInt(8);
+            List<Wish> wishes = new ArrayList<>();
+            long totalRemaining = 0;
+            for (int i = 0; i < count; i++) {
+                long price = 1 + random.nextInt(1_000_000);
+                long saved = random.nextInt(4) == 0 ? price : random.nextInt((int) price);
+                wishes.add(new Wish(i + 1, "wish " + i, price, "", saved));
+                totalRemaining += price - saved;
+            }
+            long amount = 1 + random.nextInt(3_000_000);
+
+            for (Strategy strategy : Strategy.values()) {
+                long[] shares = DepositAllocator.allocate(wishes, amount, strategy);
+                String where = strategy + " " + amount + " over " + wishes.size() + ": " + Arrays.toString(shares);
+
+                assertEquals(where, Math.min(amount, totalRemaining), DepositAllocator.sum(shares));
+                for (int i = 0; i < count; i++) {
+                    Wish wish = wishes.get(i);
+                    assertTrue(where, shares[i] >= 0);
+                    assertTrue(where, shares[i] <= wish.getRemainingSatang());
+                }
+            }
+        }
+    }
+
+    // one wish per remaining amount, priced at that amount with nothing saved yet
+    private static List<Wish> needing(long... remaining) {
+        List<Wish> wishes = new ArrayList<>();
+        for (int i = 0; i < remaining.length; i++) {
+            wishes.add(new Wish(i + 1, "wish " + i, remaining[i], "", 0));
+        }
+        return wishes;
+    }
+}
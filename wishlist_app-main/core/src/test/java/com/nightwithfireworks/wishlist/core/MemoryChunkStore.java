@@ -0,0 +1,33 @@
+package com.nightwithfireworks.wishlist.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// chunks kept in memory, in the order they were first stored
+class MemoryChunkStore implements ChunkStore {
+
+    final Map<String, byte[]> chunks = new LinkedHashMap<>();
+
+    @Override
+    public boolean contains(String id) {
+        return chunks.containsKey(id);
+    }
+
+    @Override
+    public void put(String id, byte[] compressed, int length) {
+        chunks.put(id, Arrays.copyOf(compressed, length));
+    }
+
+    @Override
+    public InputStream open(String id) throws FileNotFoundException {
+        byte[] bytes = chunks.get(id);
+        if (bytes == null) {
+            throw new FileNotFoundException(id);
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+}
@@ -0,0 +1,116 @@
+package com.nightwithfireworks.wishlist.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class NameSearchIndexTest {
+
+    private static final long[] NONE = new long[0];
+
+    @Test
+    public void findsThaiSubstringsWithoutWordBreaks() {
+        NameSearchIndex index = thaiIndex();
+
+        assertArrayEquals(new long[]{1}, index.search("เป๋า"));
+        assertArrayEquals(new long[]{2}, index.search("เท้าวิ่ง"));
+        assertArrayEquals(NONE, index.search("กระเป๋าใหม่"));
+    }
+
+    @Test
+    public void oneCharacterQueryUsesSingleCharacterKeys() {
+        NameSearchIndex index = thaiIndex();
+
+        assertArrayEquals(new long[]{1, 2}, index.search("ง"));
+        assertArrayEquals(new long[]{3}, index.search("ห"));
+        assertArrayEquals(NONE, index.search("ฮ"));
+    }
+
+    @Test
+    public void twoCharacterQueryMatchesOnlyAdjacentPairs() {
+        NameSearchIndex index = thaiIndex();
+
+        assertArrayEquals(new long[]{2}, index.search("รอ"));
+        // both characters are in กระเป๋าเงิน, but never next to each other
+        assertArrayEquals(NONE, index.search("กง"));
+    }
+
+    @Test
+    public void longerQueryIsVerifiedAgainstTheName() {
+        NameSearchIndex index = new NameSearchIndex();
+        index.add(10, "abba");
+
+        // "abba" has both pairs of "aba", but not "aba" itself
+        assertArrayEquals(NONE, index.search("aba"));
+
+        index.add(11, "caban");
+        assertArrayEquals(new long[]{11}, index.search("aba"));
+    }
+
+    @Test
+    public void ignoresCaseAndZeroWidthSpaces() {
+        NameSearchIndex index = new NameSearchIndex();
+        index.add(1, "Nintendo Switch");
+        index.add(2, "เสื้อ\u200Bกันหนาว");
+
+        assertArrayEquals(new long[]{1}, index.search("SWITCH"));
+        assertArrayEquals(new long[]{2}, index.search("เสื้อกัน"));
+        assertArrayEquals(NONE, index.search(""));
+        assertArrayEquals(NONE, index.search("\u200B"));
+    }
+
+    @Test
+    public void removedWishNoLongerMatches() {
+        NameSearchIndex index = thaiIndex();
+
+        index.remove(1);
+
+        assertArrayEquals(new long[]{2}, index.search("ง"));
+        assertArrayEquals(NONE, index.search("เป๋า"));
+        assertArrayEquals(new long[]{2}, index.search("รอง"));
+    }
+
+    // every query answered by the index must equal a plain contains() over all names
+    @Test
+    public void agreesWithLinearScan() {
+        Random random = new Random(42);
+        String alphabet = "กขงนรอาเ";
+        NameSearchIndex index = new NameSearchIndex();
+        List<String> names = new ArrayList<>();
+        for (int id = 0; id < 300; id++) {
+            String name = randomText(random, alphabet, 1 + random.nextInt(10));
+            names.add(name);
+            index.add(id, name);
+        }
+        for (int i = 0; i < 500; i++) {
+            String query = randomText(random, alphabet, 1 + random.nextInt(4));
+            List<Long> expected = new ArrayList<>();
+            for (int id = 0; id < names.size(); id++) {
+                if (names.get(id).contains(query)) {
+                    expected.add((long) id);
+                }
+            }
+            assertArrayEquals(query, expected.stream().mapToLong(Long::longValue).toArray(), index.search(query));
+        }
+    }
+
+    private static NameSearchIndex thaiIndex() {
+        NameSearchIndex index = new NameSearchIndex();
+        index.add(1, "กระเป๋าเงิน");
+        index.add(2, "รองเท้าวิ่ง");
+        index.add(3, "เสื้อกันหนาว");
+        return index;
+    }
+
+    private static String randomText(Random random, String alphabet, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+}
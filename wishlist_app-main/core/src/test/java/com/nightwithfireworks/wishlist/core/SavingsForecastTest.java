@@ -0,0 +1,60 @@
+package com.nightwithfireworks.wishlist.core;
+
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.Assert.assertEquals;
+
+public class SavingsForecastTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long START = 1_700_000_000_000L;
+
+    // three deposits of 100 baht, ten days apart: 300 baht over 20 days with 3 deposits is 10 baht a day
+    private static final DepositSummary EVERY_TEN_DAYS = new DepositSummary(3, 300_00, START, START + 20 * DAY);
+
+    @Test
+    public void depositTodayProjectsTenDaysOut() {
+        long completion = SavingsForecast.estimateCompletion(EVERY_TEN_DAYS, 100_00, at(START + 20 * DAY));
+
+        assertEquals(START + 30 * DAY, completion);
+    }
+
+    // a device clock behind the ledger, e.g. after a restore from another phone, still counts from the last deposit
+    @Test
+    public void clockBehindTheLedgerProjectsFromTheLastDeposit() {
+        long completion = SavingsForecast.estimateCompletion(EVERY_TEN_DAYS, 100_00, at(START));
+
+        assertEquals(START + 30 * DAY, completion);
+    }
+
+    @Test
+    public void staleHistoryProjectsFromNow() {
+        long now = START + 200 * DAY;
+
+        long completion = SavingsForecast.estimateCompletion(EVERY_TEN_DAYS, 100_00, at(now));
+
+        assertEquals(now + 10 * DAY, completion);
+    }
+
+    @Test
+    public void completeWishKeepsItsLastDeposit() {
+        long completion = SavingsForecast.estimateCompletion(EVERY_TEN_DAYS, 0, at(START + 200 * DAY));
+
+        assertEquals(START + 20 * DAY, completion);
+    }
+
+    @Test
+    public void oneDepositIsNotEnough() {
+        DepositSummary once = new DepositSummary(1, 100_00, START, START);
+
+        assertEquals(SavingsForecast.UNKNOWN, SavingsForecast.estimateCompletion(once, 100_00, at(START)));
+    }
+
+    private static Clock at(long millis) {
+        return Clock.fixed(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+}
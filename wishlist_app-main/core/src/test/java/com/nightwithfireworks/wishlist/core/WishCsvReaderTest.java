@@ -0,0 +1,46 @@
+package com.nightwithfireworks.wishlist.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WishCsvReaderTest {
+
+    @Test
+    public void readsHeaderWithByteOrderMark() throws IOException {
+        Wish wish = readOne("\uFEFFname,price,savedAmount,imageUri\nBike,1500.50,200,\n");
+
+        assertEquals("Bike", wish.getName());
+        assertEquals(150050, wish.getPriceSatang());
+        assertEquals(20000, wish.getSavedSatang());
+    }
+
+    @Test
+    public void readsQuotedHeaderWithByteOrderMark() throws IOException {
+        Wish wish = readOne("\uFEFF\"name\",\"price\"\r\n\"Camera, used\",900\r\n");
+
+        assertEquals("Camera, used", wish.getName());
+        assertEquals(90000, wish.getPriceSatang());
+    }
+
+    @Test
+    public void keepsByteOrderMarkInsideData() throws IOException {
+        Wish wish = readOne("name,price\n\uFEFFBook,100\n");
+
+        assertEquals("\uFEFFBook", wish.getName());
+    }
+
+    private static Wish readOne(String csv) throws IOException {
+        try (WishCsvReader reader = new WishCsvReader(new StringReader(csv))) {
+            assertTrue(reader.hasNext());
+            Wish wish = reader.next();
+            assertFalse(reader.hasNext());
+            return wish;
+        }
+    }
+}